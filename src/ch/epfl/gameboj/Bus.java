@@ -1,12 +1,21 @@
 package ch.epfl.gameboj;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Objects;
 
 import ch.epfl.gameboj.component.Component;
 
 /**
- * A bus connecting different components
+ * A bus connecting different components. The components attached to the bus
+ * are stored in a table having one entry for each page of 256 bytes of the
+ * memory, and one entry for each address of the page of the memory-mapped
+ * registers (from 0xFF00 to 0xFFFF), so that an access only concerns the
+ * components that are mapped at the given address.
+ * 
+ * The plain memories (the rams, and the banks of the roms that are currently
+ * selected) can also be mapped directly on the bus : the accesses to their
+ * entries are then done directly in their arrays of bytes, without going
+ * through their components
  * 
  * @author Arnaud Robert (287964)
  * @author Sophie Du Couedic (260007)
@@ -14,18 +23,31 @@ import ch.epfl.gameboj.component.Component;
  */
 public final class Bus {
 
-    private final ArrayList<Component> components;
+    private static final int ADDRESS_SPACE_SIZE = 1 << Short.SIZE;
+    private static final int PAGE_SIZE = 1 << Byte.SIZE;
+    private static final int ENTRIES_COUNT = AddressMap.REGS_START / PAGE_SIZE
+            + ADDRESS_SPACE_SIZE - AddressMap.REGS_START;
+
+    private final Component[][] components;
+    private final byte[][] readMemories;
+    private final byte[][] writeMemories;
+    private final int[] memoryOffsets;
 
     /**
-     * constructs a bus and initializes an empty arraylist
+     * constructs a bus to which no component is attached
      */
     public Bus() {
-        components = new ArrayList<Component>();
+        components = new Component[ENTRIES_COUNT][];
+        Arrays.fill(components, new Component[0]);
+        readMemories = new byte[ENTRIES_COUNT][];
+        writeMemories = new byte[ENTRIES_COUNT][];
+        memoryOffsets = new int[ENTRIES_COUNT];
     }
 
     /**
-     * attaches himself to a component, by adding it to his list of components
-     * throws NullPointerException if the component is null
+     * attaches himself to a component on the whole address space, by adding
+     * it to the components of every address, throws NullPointerException if
+     * the component is null
      * 
      * @param component
      *            : the component to attach
@@ -33,7 +55,110 @@ public final class Bus {
      *             if component is null
      */
     public void attach(Component component) {
-        components.add(Objects.requireNonNull(component));
+        attach(component, 0, ADDRESS_SPACE_SIZE);
+    }
+
+    /**
+     * attaches himself to a component that only has data between the given
+     * addresses. The component is added to the components of every page that
+     * intersects the range, or to the components of every address of the
+     * range that lies in the page of the memory-mapped registers. The
+     * component must still ignore the accesses outside of its range, since
+     * they may concern another part of one of its pages
+     * 
+     * @param component
+     *            : the component to attach
+     * @param startAddress
+     *            an int : the first address of the range
+     * @param endAddress
+     *            an int : the address following the range
+     * @throws NullPointerException
+     *             if component is null
+     * @throws IllegalArgumentException
+     *             if the range is not included in the address space
+     */
+    public void attach(Component component, int startAddress,
+            int endAddress) {
+        Objects.requireNonNull(component);
+        checkRange(startAddress, endAddress);
+
+        for (int a = startAddress; a < endAddress; a = nextEntryAddress(a)) {
+            int entry = entry(a);
+            components[entry] = withComponent(components[entry], component);
+        }
+    }
+
+    /**
+     * maps directly a memory on the bus between the given addresses, the
+     * first one corresponding to the first byte of the memory. Only the pages
+     * that are entirely included in the range are mapped (as well as every
+     * address of the range that lies in the page of the memory-mapped
+     * registers) : the reads, and the writes if the memory is writable, are
+     * then done directly in the memory, and no longer reach the components
+     * attached at these addresses. A memory that is not writable must
+     * therefore be modified through a component that is attached to its
+     * addresses
+     * 
+     * @param memory
+     *            an array of bytes : the memory
+     * @param startAddress
+     *            an int : the address of the first byte of the memory
+     * @param endAddress
+     *            an int : the address following the mapped range
+     * @param writable
+     *            a boolean : true if the writes can be done directly in the
+     *            memory
+     * @throws NullPointerException
+     *             if memory is null
+     * @throws IllegalArgumentException
+     *             if the range is not included in the address space or is
+     *             larger than the memory
+     */
+    public void map(byte[] memory, int startAddress, int endAddress,
+            boolean writable) {
+        map(memory, 0, startAddress, endAddress, writable);
+    }
+
+    /**
+     * maps directly a part of a memory on the bus between the given addresses,
+     * the first one corresponding to the byte of the memory at the given
+     * index, in the same way as map(memory, startAddress, endAddress,
+     * writable). A part of a memory can thus be mapped again at the same
+     * addresses when it changes, like a bank of a rom
+     * 
+     * @param memory
+     *            an array of bytes : the memory
+     * @param index
+     *            an int : the index of the byte of the memory mapped at
+     *            startAddress
+     * @param startAddress
+     *            an int : the address of the first mapped byte of the memory
+     * @param endAddress
+     *            an int : the address following the mapped range
+     * @param writable
+     *            a boolean : true if the writes can be done directly in the
+     *            memory
+     * @throws NullPointerException
+     *             if memory is null
+     * @throws IllegalArgumentException
+     *             if the range is not included in the address space or if the
+     *             memory does not have enough bytes from the index
+     */
+    public void map(byte[] memory, int index, int startAddress,
+            int endAddress, boolean writable) {
+        Objects.requireNonNull(memory);
+        checkRange(startAddress, endAddress);
+        Preconditions.checkArgument(index >= 0
+                && endAddress - startAddress <= memory.length - index);
+
+        for (int a = startAddress; a < endAddress; a = nextEntryAddress(a)) {
+            if (entryStart(a) == a && nextEntryAddress(a) <= endAddress) {
+                int entry = entry(a);
+                readMemories[entry] = memory;
+                writeMemories[entry] = writable ? memory : null;
+                memoryOffsets[entry] = index - startAddress;
+            }
+        }
     }
 
     /**
@@ -44,11 +169,17 @@ public final class Bus {
      *            an int : the address
      * @return an int : the data at the address
      * @throws IllegalArgumentException
-     *             if the address
+     *             if the address is not a 16-bits value
      */
     public int read(int address) {
         Preconditions.checkBits16(address);
-        for (Component c : components) {
+        int entry = entry(address);
+        byte[] memory = readMemories[entry];
+        if (memory != null) {
+            return Byte.toUnsignedInt(
+                    memory[memoryOffsets[entry] + address]);
+        }
+        for (Component c : components[entry]) {
             int value = c.read(address);
             if (value != Component.NO_DATA) {
                 return value;
@@ -58,20 +189,67 @@ public final class Bus {
     }
 
     /**
-     * store the data at the address in every component bouned to the bus
+     * store the data at the address in every component bouned to the bus at
+     * this address
      * 
      * @param address
      *            an int : the address we want to store the new data
      * @param data
      *            an int
      * @throws IllegalArgumentException
-     *             if address or data is not a 8-bits value
+     *             if address is not a 16-bits value or data is not a 8-bits
+     *             value
      */
     public void write(int address, int data) {
         Preconditions.checkBits16(address);
         Preconditions.checkBits8(data);
-        for (Component c : components) {
+        int entry = entry(address);
+        byte[] memory = writeMemories[entry];
+        if (memory != null) {
+            memory[memoryOffsets[entry] + address] = (byte) data;
+            return;
+        }
+        for (Component c : components[entry]) {
             c.write(address, data);
         }
     }
+
+    // The entries of the pages come first, followed by the entries of the
+    // addresses of the memory-mapped registers
+    private static int entry(int address) {
+        return address < AddressMap.REGS_START ? address / PAGE_SIZE
+                : AddressMap.REGS_START / PAGE_SIZE + address
+                        - AddressMap.REGS_START;
+    }
+
+    private static int entryStart(int address) {
+        return address < AddressMap.REGS_START
+                ? address / PAGE_SIZE * PAGE_SIZE
+                : address;
+    }
+
+    private static int nextEntryAddress(int address) {
+        return address < AddressMap.REGS_START ? entryStart(address) + PAGE_SIZE
+                : address + 1;
+    }
+
+    private static void checkRange(int startAddress, int endAddress) {
+        Preconditions.checkArgument(0 <= startAddress
+                && startAddress <= endAddress
+                && endAddress <= ADDRESS_SPACE_SIZE);
+    }
+
+    // The components keep the order in which they have been attached, since
+    // the first one having a data at an address is the one that is read
+    private static Component[] withComponent(Component[] components,
+            Component component) {
+        for (Component c : components) {
+            if (c == component) {
+                return components;
+            }
+        }
+        Component[] result = Arrays.copyOf(components, components.length + 1);
+        result[components.length] = component;
+        return result;
+    }
 }
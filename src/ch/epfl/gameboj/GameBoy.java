@@ -1,11 +1,13 @@
 package ch.epfl.gameboj;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Objects;
 
 import ch.epfl.gameboj.component.Joypad;
 import ch.epfl.gameboj.component.Timer;
 import ch.epfl.gameboj.component.cartridge.Cartridge;
+import ch.epfl.gameboj.component.cpu.CodeMap;
 import ch.epfl.gameboj.component.cpu.Cpu;
 import ch.epfl.gameboj.component.lcd.lcdControl.LcdController;
 import ch.epfl.gameboj.component.memory.BootRomController;
@@ -29,16 +31,22 @@ public final class GameBoy {
     private final LcdController lcd;
     private final Timer timer;
     private final Joypad joypad;
-    
-    private long cycleGB;
+    private final Scheduler scheduler;
 
     public final static long NUMBER_OF_CYCLES_PER_SECOND = 1 << 20;
     public final static double NUMBER_OF_CYCLE_PER_NANOSECOND = NUMBER_OF_CYCLES_PER_SECOND/1e9;
 
+    // The directory where the maps of the code of the cartridges are kept. If
+    // it is set, the blocks of the cartridge are decoded before it starts
+    private final static String CODE_CACHE = System
+            .getProperty("gameboj.codeCache");
+
             
     /**
      * Builds a GameBoy and its different components and then proceeds to attach
-     * those to the GameBoy
+     * those to the GameBoy. If the property gameboj.codeCache names a
+     * directory, the blocks of the cartridge that can be found statically
+     * are decoded right away, its CodeMap being kept in this directory
      * 
      * @param cartridge
      *            : The cartridge used to build the GameBoy, access to its
@@ -60,11 +68,16 @@ public final class GameBoy {
         echoRam = new RamController(ram, AddressMap.ECHO_RAM_START,
                 AddressMap.ECHO_RAM_END);
         cpu = new Cpu();
+        cpu.setRomController(brc);
+        if (CODE_CACHE != null) {
+            cpu.decodeBlocks(cartridge.rom(),
+                    codeMap(cartridge, new File(CODE_CACHE)).blockStarts());
+        }
         lcd = new LcdController(cpu);
         timer = new Timer(cpu);
         joypad = new Joypad(cpu);
 
-        cycleGB = 0;
+        scheduler = new Scheduler(timer, cpu, lcd);
 
         cpu.attachTo(bus);
         lcd.attachTo(bus);
@@ -75,6 +88,16 @@ public final class GameBoy {
         joypad.attachTo(bus);
     }
 
+    // The map of the code of the cartridge, found again if the directory can
+    // not be used
+    private static CodeMap codeMap(Cartridge cartridge, File directory) {
+        try {
+            return CodeMap.cached(cartridge, directory);
+        } catch (IOException e) {
+            return CodeMap.of(cartridge);
+        }
+    }
+
     /**
      * Getter for the GameBoy's bus
      * 
@@ -132,14 +155,9 @@ public final class GameBoy {
      *             simulated
      */
     public void runUntil(long cycle) {
-        Preconditions.checkArgument(cycleGB <= cycle);
+        Preconditions.checkArgument(cycles() <= cycle);
 
-        while (cycleGB < cycle) {
-            timer.cycle(cycleGB);
-            cpu.cycle(cycleGB);
-            lcd.cycle(cycleGB);
-            cycleGB++;
-        }
+        scheduler.runUntil(cycle);
     }
 
     /**
@@ -148,7 +166,7 @@ public final class GameBoy {
      * @return the number of cycles that have already been simulated
      */
     public long cycles() {
-        return cycleGB;
+        return scheduler.cycles();
     };
 
 }
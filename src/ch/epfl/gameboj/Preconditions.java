@@ -1,14 +1,26 @@
 package ch.epfl.gameboj;
 
 import java.lang.IllegalArgumentException;
+import java.util.Objects;
 
 /**
- * A set of useful assertion methods
+ * A set of useful assertion methods.
+ * 
+ * The methods whose names end with IfDebug are used on the internal accesses
+ * between the components, whose arguments are valid by construction : they
+ * only check their arguments in debug mode, that is enabled by running the
+ * GameBoy with the system property gameboj.debug set to true
  * 
  * @author Sophie du Couédic (260007)
  * @author Arnaud Robert (287964)
  */
 public interface Preconditions {
+
+    /**
+     * true if the debug mode is enabled, in which case the internal accesses
+     * are checked as well
+     */
+    boolean DEBUG = Boolean.getBoolean("gameboj.debug");
    
     /**
      * checks that a requirement b is fulfilled 
@@ -45,6 +57,53 @@ public interface Preconditions {
         checkArgument(v >= 0 && v < 0x10000);
         return v;
     }
-    
-    
+
+    /**
+     * checks that a requirement b is fulfilled, in debug mode only
+     * 
+     * @param b a boolean
+     * @throws IllegalArgumentException if b is false in debug mode
+     */
+    static void checkArgumentIfDebug(boolean b) throws IllegalArgumentException {
+        if (DEBUG) {
+            checkArgument(b);
+        }
+    }
+
+    /**
+     * checks that the argument can be represented by a byte, in debug mode only
+     * 
+     * @param v an int, the param to be checked
+     * @return v the parameter
+     * @throws IllegalArgumentException if v is not between 0 and FF in debug mode
+     */
+    static int checkBits8IfDebug(int v) throws IllegalArgumentException {
+        return DEBUG ? checkBits8(v) : v;
+    }
+
+    /**
+     * checks that the argument can be represented by 16 bits, in debug mode
+     * only
+     * 
+     * @param v an int, the param to be checked
+     * @return v the parameter
+     * @throws IllegalArgumentException if v is not between 0 and FFFF in debug mode
+     */
+    static int checkBits16IfDebug(int v) throws IllegalArgumentException {
+        return DEBUG ? checkBits16(v) : v;
+    }
+
+    /**
+     * checks that the index is between 0 (included) and the length
+     * (excluded), in debug mode only
+     * 
+     * @param index an int, the index to be checked
+     * @param length an int, the length of the indexed range
+     * @return index the parameter
+     * @throws IndexOutOfBoundsException if the index is out of bounds in debug mode
+     */
+    static int checkIndexIfDebug(int index, int length)
+            throws IndexOutOfBoundsException {
+        return DEBUG ? Objects.checkIndex(index, length) : index;
+    }
 }
@@ -52,10 +52,10 @@ public final class RegisterFile<E extends Register> {
      * @param newValue
      *            the newValue to be set
      * @throws IllegalArgumentException
-     *             if newValue is not a valid 8-bit value
+     *             in debug mode, if newValue is not a valid 8-bit value
      */
     public void set(E reg, int newValue) {
-        Preconditions.checkBits8(newValue);
+        Preconditions.checkBits8IfDebug(newValue);
 
         file[reg.index()] = newValue;
     }
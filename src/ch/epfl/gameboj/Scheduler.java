@@ -0,0 +1,94 @@
+package ch.epfl.gameboj;
+
+import java.util.Objects;
+
+import ch.epfl.gameboj.component.Clocked;
+
+/**
+ * A scheduler that simulates clocked components by jumping directly from one
+ * cycle to the next cycle during which at least one of the components has
+ * something to execute, instead of clocking every component at every cycle
+ * 
+ * @author Sophie du Couédic (260007)
+ * @author Arnaud Robert (287964)
+ */
+public final class Scheduler {
+
+    private final Clocked[] components;
+    private long cycle;
+
+    /**
+     * Constructs a scheduler for the given components. During a given cycle,
+     * the components are clocked in the order in which they are given
+     * 
+     * @param components
+     *            the components to simulate
+     * @throws NullPointerException
+     *             if one of the components is null
+     */
+    public Scheduler(Clocked... components) {
+        this.components = components.clone();
+        for (Clocked c : this.components) {
+            Objects.requireNonNull(c);
+        }
+        cycle = 0;
+    }
+
+    /**
+     * Returns the number of cycles that have already been simulated
+     * 
+     * @return a long : the number of cycles that have already been simulated
+     */
+    public long cycles() {
+        return cycle;
+    }
+
+    /**
+     * Simulates the components until the given cycle minus one. During each
+     * simulated cycle, only the components that are not idle are clocked
+     * 
+     * @param cycle
+     *            the value of the next cycle to be ran after the method is used
+     * @throws IllegalArgumentException
+     *             if a strictly higher number of cycles has already been
+     *             simulated
+     */
+    public void runUntil(long cycle) {
+        Preconditions.checkArgument(this.cycle <= cycle);
+
+        while (this.cycle < cycle) {
+            for (int i = 0; i < components.length; ++i) {
+                Clocked c = components[i];
+                if (c.nextNonIdleCycle(this.cycle) <= this.cycle) {
+                    this.cycle = c.cycleUntil(this.cycle, limit(i, cycle));
+                }
+            }
+            this.cycle = nextNonIdleCycle(cycle);
+        }
+    }
+
+    // The first cycle, after the current one, during which one of the other
+    // components may have something to execute
+    private long limit(int index, long limit) {
+        long next = limit;
+
+        for (int i = 0; i < components.length; ++i) {
+            if (i != index) {
+                next = Math.min(next, components[i].nextNonIdleCycle(cycle));
+            }
+        }
+
+        return Math.max(next, cycle + 1);
+    }
+
+    private long nextNonIdleCycle(long limit) {
+        long following = cycle + 1;
+        long next = limit;
+
+        for (Clocked c : components) {
+            next = Math.min(next, c.nextNonIdleCycle(following));
+        }
+
+        return Math.max(next, following);
+    }
+}
@@ -17,4 +17,40 @@ public interface Clocked {
      *            the current the cycle
      */
     abstract void cycle(long cycle);
+
+    /**
+     * Returns the first cycle, starting from the given one, during which the
+     * component has something to execute. The method cycle is not guaranteed
+     * to be called for the cycles that precede the returned one, so a
+     * component that overrides this method must be able to evolve directly
+     * from one of its non idle cycles to the next one. By default, a component
+     * has something to execute during every cycle
+     * 
+     * @param cycle
+     *            a long : the current cycle
+     * @return a long : the next cycle (greater or equal to the given one)
+     *         during which the method cycle has to be called
+     */
+    default long nextNonIdleCycle(long cycle) {
+        return cycle;
+    }
+
+    /**
+     * Asks the component to execute all operations it is supposed to execute
+     * during the given cycle and, if it is able to, the operations of the
+     * following cycles, as long as the given limit is not reached. The limit
+     * is the first cycle during which another component may have something to
+     * execute. By default, only the given cycle is executed
+     * 
+     * @param cycle
+     *            a long : the current cycle
+     * @param limit
+     *            a long : the first cycle (strictly greater than the current
+     *            one) that must not be executed
+     * @return a long : the last cycle that has been executed
+     */
+    default long cycleUntil(long cycle, long limit) {
+        cycle(cycle);
+        return cycle;
+    }
 }
@@ -1,6 +1,7 @@
 package ch.epfl.gameboj.component;
 
 import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.bits.Bits;
 import ch.epfl.gameboj.component.cpu.Cpu;
@@ -58,12 +59,12 @@ public final class Joypad implements Component {
      * @return an integer (byte) : the value stored at P1 register or NO_DATA if
      *         the address does not corresponds to P1
      * @throws IllegalArgumentException
-     *             if the address is not a 16-bits value
+     *             in debug mode, if the address is not a 16-bits value
      * @see ch.epfl.gameboj.component.Component#read(int)
      */
     @Override
     public int read(int address) {
-        Preconditions.checkBits16(address);
+        Preconditions.checkBits16IfDebug(address);
 
         if (address == AddressMap.REG_P1) {
             return P1;
@@ -81,14 +82,14 @@ public final class Joypad implements Component {
      * @param data
      *            the value to store
      * @throws IllegalArgumentException
-     *             if the address is not a 16-bits value or if data is not a
-     *             8-bits value
+     *             in debug mode, if the address is not a 16-bits value or if
+     *             data is not a 8-bits value
      * @see ch.epfl.gameboj.component.Component#write(int,int)
      */
     @Override
     public void write(int address, int data) {
-        Preconditions.checkBits16(address);
-        Preconditions.checkBits8(data);
+        Preconditions.checkBits16IfDebug(address);
+        Preconditions.checkBits8IfDebug(data);
 
         if (address == AddressMap.REG_P1) {
             data = (data >>> 4) << 4;
@@ -152,4 +153,14 @@ public final class Joypad implements Component {
             cpu.requestInterrupt(Interrupt.JOYPAD);
         }
     }
+
+    /**
+     * Attaches the joypad to the bus, at the address of the register P1 only
+     * 
+     * @see ch.epfl.gameboj.component.Component#attachTo(ch.epfl.gameboj.Bus)
+     */
+    @Override
+    public void attachTo(Bus bus) {
+        bus.attach(this, AddressMap.REG_P1, AddressMap.REG_P1 + 1);
+    }
 }
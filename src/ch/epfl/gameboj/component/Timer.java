@@ -3,6 +3,7 @@ package ch.epfl.gameboj.component;
 import java.util.Objects;
 
 import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.bits.Bits;
 import ch.epfl.gameboj.component.cpu.Cpu;
@@ -23,7 +24,10 @@ public final class Timer implements Component, Clocked {
     private int TMA;
     private int TAC;
 
+    private long nextCycle;
+
     private final static int TIMA_MAX_VALUE = 0xFF;
+    private final static int DIV_INCREMENT = 4;
 
     /**
      * Constructs a new timer associated to the given processor
@@ -39,17 +43,18 @@ public final class Timer implements Component, Clocked {
         TIMA = 0;
         TMA = 0;
         TAC = 0;
+        nextCycle = 0;
     }
 
     /**
      * Implements the method cycle of Clocked. The timer evolves to the given
-     * cycle, according to a determined process : __1. the main counter is
-     * incremented by 4 units, and loops to zero if it reaches it's max value
-     * 0xFFFF __2. If it is not disabled, the second counter TIMA is incremented
-     * by 1 if a bit (given by the register TAC) of the main counter goes from
-     * '1' to '0' __3. If TIMA reaches his max value (0xFF), it raises the TIMER
-     * interruption of the cpu and is reset to the value stored in the register
-     * TMA
+     * cycle, executing for every cycle since the last one it executed the
+     * following process : __1. the main counter is incremented by 4 units, and
+     * loops to zero if it reaches it's max value 0xFFFF __2. If it is not
+     * disabled, the second counter TIMA is incremented by 1 if a bit (given by
+     * the register TAC) of the main counter goes from '1' to '0' __3. If TIMA
+     * reaches his max value (0xFF), it raises the TIMER interruption of the
+     * cpu and is reset to the value stored in the register TMA
      * 
      * @param cycle
      *            a long : the current cycle
@@ -57,16 +62,31 @@ public final class Timer implements Component, Clocked {
      */
     @Override
     public void cycle(long cycle) {
+        if (cycle >= nextCycle) {
+            advance(cycle + 1 - nextCycle);
+            nextCycle = cycle + 1;
+        }
+    }
 
-        boolean previousState = state();
-
-        manageDIV();
-
-        incTIMAIfChange(previousState);
+    /**
+     * Implements the method nextNonIdleCycle of Clocked. The registers of the
+     * timer are computed from the elapsed cycles only when they are read or
+     * written, so the timer is idle until the cycle during which TIMA will
+     * raise the next TIMER interruption (forever if TIMA is disabled)
+     * 
+     * @param cycle
+     *            a long : the current cycle
+     * @see ch.epfl.gameboj.component.Clocked#nextNonIdleCycle(long)
+     */
+    @Override
+    public long nextNonIdleCycle(long cycle) {
+        return interruptCycle();
     }
 
     /**
-     * Implements the method write of Component. The given value is stored in
+     * Implements the method write of Component. The registers are first
+     * brought up to date with the cycles elapsed until the current instruction
+     * of the cpu. The given value is stored in
      * one (or none) of the Timer's register depending to the given address. If
      * the address corresponds to the register TMA, TAC or TIMA, the register
      * will take the given value, it it corresponds to the main counter, then
@@ -82,15 +102,19 @@ public final class Timer implements Component, Clocked {
      *            an int : the value
      * 
      * @throws IllegalArgumentException
-     *             if the address is not a 16-bits value or if data is not a
-     *             8-bits value
+     *             in debug mode, if the address is not a 16-bits value or if
+     *             data is not a 8-bits value
      * 
      * @see ch.epfl.gameboj.component.Component#write(int,int)
      */
     @Override
     public void write(int address, int data) {
-        Preconditions.checkBits8(data);
-        Preconditions.checkBits16(address);
+        Preconditions.checkBits8IfDebug(data);
+        Preconditions.checkBits16IfDebug(address);
+
+        if (isTimerRegister(address)) {
+            update();
+        }
 
         boolean previousState = state();
 
@@ -120,7 +144,9 @@ public final class Timer implements Component, Clocked {
     }
 
     /**
-     * Implements the method read of Component. Returns the value of the
+     * Implements the method read of Component. The registers are first brought
+     * up to date with the cycles elapsed until the current instruction of the
+     * cpu. Returns the value of the
      * register corresponding to the given address, returns NO_DATA if no
      * register corresponds to the address. If the address corresponds to the
      * main counter, only the eights most significants bits of the main counter
@@ -131,14 +157,18 @@ public final class Timer implements Component, Clocked {
      * @return an int (byte) : the value stored at the given address in the
      *         memory
      * @throws IllegalArgumentException
-     *             if the address is not a 16-bits value
+     *             in debug mode, if the address is not a 16-bits value
      * 
      * @see ch.epfl.gameboj.component.Component#read(int)
      */
     @Override
     public int read(int address) {
 
-        Preconditions.checkBits16(address);
+        Preconditions.checkBits16IfDebug(address);
+
+        if (isTimerRegister(address)) {
+            update();
+        }
 
         switch (address) {
 
@@ -160,8 +190,56 @@ public final class Timer implements Component, Clocked {
 
     }
 
-    private void manageDIV() {
-        DIV = Bits.clip(Short.SIZE, DIV + 4);
+    // Executes the cycles that elapsed since the last time the registers were
+    // up to date, including the cycle of the instruction the cpu is executing
+    private void update() {
+        cycle(cpu.currentCycle());
+    }
+
+    private boolean isTimerRegister(int address) {
+        return address >= AddressMap.REG_DIV && address <= AddressMap.REG_TAC;
+    }
+
+    // Executes the given number of cycles at once : TIMA is incremented once
+    // for each time the tested bit of the main counter goes from '1' to '0'
+    private void advance(long cycles) {
+        long newDIV = DIV + cycles * DIV_INCREMENT;
+
+        if (Bits.test(TAC, 2)) {
+            int period = DIVBitToTest() + 1;
+            incTIMA((newDIV >> period) - (DIV >> period));
+        }
+
+        DIV = (int) (newDIV & 0xFFFF);
+    }
+
+    private void incTIMA(long increments) {
+        while (increments > 0) {
+            int beforeOverflow = TIMA_MAX_VALUE + 1 - TIMA;
+
+            if (increments < beforeOverflow) {
+                TIMA += increments;
+                increments = 0;
+            } else {
+                increments -= beforeOverflow;
+                cpu.requestInterrupt(Interrupt.TIMER);
+                TIMA = TMA;
+            }
+        }
+    }
+
+    // The cycle during which TIMA will raise the next TIMER interruption, if
+    // no register of the timer is modified in the meantime
+    private long interruptCycle() {
+        if (!Bits.test(TAC, 2)) {
+            return Long.MAX_VALUE;
+        }
+
+        int period = DIVBitToTest() + 1;
+        long increments = TIMA_MAX_VALUE + 1 - TIMA;
+        long overflowDIV = ((DIV >> period) + increments) << period;
+
+        return nextCycle - 1 + (overflowDIV - DIV) / DIV_INCREMENT;
     }
 
     private void incTIMAIfChange(boolean previousState) {
@@ -178,28 +256,32 @@ public final class Timer implements Component, Clocked {
     }
 
     private boolean state() {
+        return Bits.test(TAC, 2) && Bits.test(DIV, DIVBitToTest());
+    }
 
-        int DIVBitToTest;
-
+    private int DIVBitToTest() {
         switch (Bits.extract(TAC, 0, 2)) {
 
         case 0b00:
-            DIVBitToTest = 9;
-            break;
+            return 9;
         case 0b01:
-            DIVBitToTest = 3;
-            break;
+            return 3;
         case 0b10:
-            DIVBitToTest = 5;
-            break;
+            return 5;
         case 0b11:
-            DIVBitToTest = 7;
-            break;
+            return 7;
         default:
             throw new Error("no bit to test in the counter");
         }
-
-        return Bits.test(TAC, 2) && Bits.test(DIV, DIVBitToTest);
     }
 
+    /**
+     * Attaches the timer to the bus, at the addresses of its registers only
+     * 
+     * @see ch.epfl.gameboj.component.Component#attachTo(ch.epfl.gameboj.Bus)
+     */
+    @Override
+    public void attachTo(Bus bus) {
+        bus.attach(this, AddressMap.REG_DIV, AddressMap.REG_TAC + 1);
+    }
 }
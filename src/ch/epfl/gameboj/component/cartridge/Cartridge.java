@@ -20,12 +20,12 @@ import ch.epfl.gameboj.component.memory.Rom;
  */
 public final class Cartridge implements Component {
 
-    private final Component mbc;
+    private final MemoryBankController mbc;
     private final static int CARTRIDGE_TYPE_ADDRESS = 0x147;
     private final static int[] MBC1_RAM_SIZE = {0,2048,8192,3276};
     private final static int MBC1_RAM_SIZE_ADDRESS = 0x149;
 
-    private Cartridge(Component mbc) {
+    private Cartridge(MemoryBankController mbc) {
         this.mbc = Objects.requireNonNull(mbc);
     }
 
@@ -39,12 +39,12 @@ public final class Cartridge implements Component {
      * @return an integer (byte) : the value stored at the given address in the
      *         memory
      * @throws IllegalArgumentException
-     *             if the address is not a 16-bits value
+     *             in debug mode, if the address is not a 16-bits value
      * @see ch.epfl.gameboj.component.Component#read(int)
      */
     @Override
     public int read(int address) {
-        Preconditions.checkBits16(address);
+        Preconditions.checkBits16IfDebug(address);
         return mbc.read(address);
     }
 
@@ -59,18 +59,43 @@ public final class Cartridge implements Component {
      * @param data
      *            an integer : the value
      * @throws IllegalArgumentException
-     *             if the address is not a 16-bits value or if data is not a
-     *             8-bits value
+     *             in debug mode, if the address is not a 16-bits value or if
+     *             data is not a 8-bits value
      * @see ch.epfl.gameboj.component.Component#write(int,int)
      */
     @Override
     public void write(int address, int data) {
-        Preconditions.checkBits16(address);
-        Preconditions.checkBits8(data);
+        Preconditions.checkBits16IfDebug(address);
+        Preconditions.checkBits8IfDebug(data);
 
         mbc.write(address, data);
     }
 
+    /**
+     * Returns the index, in the read-only memory of the cartridge, of the byte
+     * that is currently mapped at the given address by the bank memory
+     * controller, or -1 if the address is not one of the read-only memory
+     * 
+     * @param address
+     *            an int : the address
+     * @return an int : the index of the byte in the read-only memory, or -1
+     * @throws IllegalArgumentException
+     *             in debug mode, if the address is not a 16-bits value
+     */
+    public int romIndex(int address) {
+        Preconditions.checkBits16IfDebug(address);
+        return mbc.romIndex(address);
+    }
+
+    /**
+     * Returns the read-only memory of the cartridge, all its banks included
+     * 
+     * @return a Rom : the read-only memory of the cartridge
+     */
+    public Rom rom() {
+        return mbc.rom();
+    }
+
     /**
      * Constructs and returns a new Cartridge of type 0 which the read-only
      * memory contains the bytes of the given file (the file must contain 0 at
@@ -3,7 +3,6 @@ package ch.epfl.gameboj.component.cartridge;
 import java.util.Objects;
 
 import ch.epfl.gameboj.Preconditions;
-import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.memory.Rom;
 
 /**
@@ -13,7 +12,7 @@ import ch.epfl.gameboj.component.memory.Rom;
  * @author Sophie du Couédic (26007)
  * @author Arnaud Robert (287964)
  */
-public final class MBC0 implements Component {
+public final class MBC0 implements MemoryBankController {
 
     private final Rom rom;
     private final static int MB_ROM_SIZE = 0x8000;
@@ -44,12 +43,12 @@ public final class MBC0 implements Component {
      * @return an int (byte) : the value stored at the given address in the
      *         memory
      * @throws IllegalArgumentException
-     *             if the address is not a 16-bits value
+     *             in debug mode, if the address is not a 16-bits value
      * @see ch.epfl.gameboj.component.Component#read(int)
      */
     @Override
     public int read(int address) {
-        Preconditions.checkBits16(address);
+        Preconditions.checkBits16IfDebug(address);
         if (address >= MB_ROM_SIZE) {
             return NO_DATA;
         } else {
@@ -78,4 +77,26 @@ public final class MBC0 implements Component {
     public void write(int address, int data) {
     }
 
+    /**
+     * Implements the method romIndex of MemoryBankController : the read-only
+     * memory is entirely mapped from the address 0, so the index of a byte is
+     * its address
+     * 
+     * @see ch.epfl.gameboj.component.cartridge.MemoryBankController#romIndex(int)
+     */
+    @Override
+    public int romIndex(int address) {
+        Preconditions.checkBits16IfDebug(address);
+        return address < MB_ROM_SIZE ? address : -1;
+    }
+
+    /**
+     * Implements the method rom of MemoryBankController
+     * 
+     * @see ch.epfl.gameboj.component.cartridge.MemoryBankController#rom()
+     */
+    @Override
+    public Rom rom() {
+        return rom;
+    }
 }
@@ -1,14 +1,13 @@
 package ch.epfl.gameboj.component.cartridge;
 
-import static ch.epfl.gameboj.Preconditions.checkBits16;
-import static ch.epfl.gameboj.Preconditions.checkBits8;
+import static ch.epfl.gameboj.Preconditions.checkBits16IfDebug;
+import static ch.epfl.gameboj.Preconditions.checkBits8IfDebug;
 
 import ch.epfl.gameboj.bits.Bits;
-import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.memory.Ram;
 import ch.epfl.gameboj.component.memory.Rom;
 
-public final class MBC1 implements Component {
+public final class MBC1 implements MemoryBankController {
     private static final int RAM_ENABLE = 0xA;
 
     private enum Mode { MODE_0, MODE_1 };
@@ -35,7 +34,7 @@ public final class MBC1 implements Component {
     }
 
     public int read(int address) {
-        switch (Bits.extract(checkBits16(address), 13, 3)) {
+        switch (Bits.extract(checkBits16IfDebug(address), 13, 3)) {
         case 0: case 1:
             return rom.read(romAddress(msb2(), 0, address));
         case 2: case 3:
@@ -47,10 +46,27 @@ public final class MBC1 implements Component {
         }
     }
 
+    @Override
+    public int romIndex(int address) {
+        switch (Bits.extract(checkBits16IfDebug(address), 13, 3)) {
+        case 0: case 1:
+            return romAddress(msb2(), 0, address);
+        case 2: case 3:
+            return romAddress(ramRom2, romLsb5, address);
+        default:
+            return -1;
+        }
+    }
+
+    @Override
+    public Rom rom() {
+        return rom;
+    }
+
     @Override
     public void write(int address, int data) {
-        checkBits8(data);
-        switch (Bits.extract(checkBits16(address), 13, 3)) {
+        checkBits8IfDebug(data);
+        switch (Bits.extract(checkBits16IfDebug(address), 13, 3)) {
         case 0:
             ramEnabled = Bits.clip(4, data) == RAM_ENABLE;
             break;
@@ -0,0 +1,32 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import ch.epfl.gameboj.component.Component;
+import ch.epfl.gameboj.component.memory.Rom;
+
+/**
+ * A bank memory controller, that maps the banks of the read-only memory of a
+ * cartridge on the addresses from 0x0000 to 0x7FFF
+ * 
+ * @author Sophie du Couédic (260007)
+ * @author Arnaud Robert (287964)
+ */
+interface MemoryBankController extends Component {
+
+    /**
+     * Returns the index, in the read-only memory, of the byte that is
+     * currently mapped at the given address, or -1 if the address is not one
+     * of the read-only memory
+     * 
+     * @param address
+     *            an int : the address
+     * @return an int : the index of the byte in the read-only memory, or -1
+     */
+    int romIndex(int address);
+
+    /**
+     * Returns the read-only memory whose banks are mapped by the controller
+     * 
+     * @return a Rom : the read-only memory
+     */
+    Rom rom();
+}
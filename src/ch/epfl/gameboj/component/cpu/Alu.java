@@ -1,7 +1,5 @@
 package ch.epfl.gameboj.component.cpu;
 
-import java.util.Objects;
-
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.bits.Bit;
 import ch.epfl.gameboj.bits.Bits;
@@ -62,12 +60,12 @@ public final class Alu {
      *            false if it does not)
      * @return an integer : the combined value and flags
      * @throws IllegalArgumentException
-     *             if v is not an 16-bits value
+     *             in debug mode, if v is not an 16-bits value
      */
     private static int packValueZNHC(int v, boolean z, boolean n, boolean h,
             boolean c) {
 
-        Preconditions.checkBits16(v);
+        Preconditions.checkBits16IfDebug(v);
 
         return (v << Byte.SIZE) | Flag.C.mask() * (c ? 1 : 0)
                 | Flag.H.mask() * (h ? 1 : 0) | Flag.N.mask() * (n ? 1 : 0)
@@ -99,10 +97,11 @@ public final class Alu {
      *            flags
      * @return an integer : the value contained in the package
      * @throws IllegalArgumentException
-     *             if the value to be returned is not an valid 16-bits value
+     *             in debug mode, if the value to be returned is not an valid
+     *             16-bits value
      */
     public static int unpackValue(int valueFlags) {
-        return Preconditions.checkBits16(valueFlags >>> Byte.SIZE);
+        return Preconditions.checkBits16IfDebug(valueFlags >>> Byte.SIZE);
     }
 
     /**
@@ -112,11 +111,11 @@ public final class Alu {
      *            integer : the combination of a value and flags
      * @return an integer : the flags without the value
      * @throws IllegalArgumentException
-     *             if the value contained in the package is not an valid 16-bits
-     *             value
+     *             in debug mode, if the value contained in the package is not
+     *             an valid 16-bits value
      */
     public static int unpackFlags(int valueFlags) {
-        Preconditions.checkBits16(unpackValue(valueFlags));
+        Preconditions.checkBits16IfDebug(unpackValue(valueFlags));
 
         return Bits.clip(Byte.SIZE, valueFlags);
     }
@@ -134,11 +133,11 @@ public final class Alu {
      *            carry, false if not)
      * @return an integer : the combined sum results / resulting flags value
      * @throws IllegalArgumentException
-     *             if l or r is not an 8-bits value
+     *             in debug mode, if l or r is not an 8-bits value
      */
     public static int add(int l, int r, boolean c0) {
-        Preconditions.checkBits8(l);
-        Preconditions.checkBits8(r);
+        Preconditions.checkBits8IfDebug(l);
+        Preconditions.checkBits8IfDebug(r);
 
         int carry = c0 ? 1 : 0;
         int uncutResult = l + r + carry;
@@ -176,11 +175,11 @@ public final class Alu {
      *            integer : 2nd value
      * @return integer : combined resulting sum and flags value
      * @throws IllegalArgumentException
-     *             if l or r is not an 16-bits value
+     *             in debug mode, if l or r is not an 16-bits value
      */
     public static int add16L(int l, int r) {
-        Preconditions.checkBits16(l);
-        Preconditions.checkBits16(r);
+        Preconditions.checkBits16IfDebug(l);
+        Preconditions.checkBits16IfDebug(r);
 
         int result = Bits.clip(16, l + r);
         int lowResult = add(Bits.clip(Byte.SIZE, l), Bits.clip(Byte.SIZE, r));
@@ -202,11 +201,11 @@ public final class Alu {
      *            integer : 2nd value
      * @return an integer : the combined resulting sum and flags value
      * @throws IllegalArgumentException
-     *             if l or r is not an 16-bits value
+     *             in debug mode, if l or r is not an 16-bits value
      */
     public static int add16H(int l, int r) {
-        Preconditions.checkBits16(l);
-        Preconditions.checkBits16(r);
+        Preconditions.checkBits16IfDebug(l);
+        Preconditions.checkBits16IfDebug(r);
 
         int result = Bits.clip(16, l + r);
         boolean carry = Bits.clip(Byte.SIZE, l)
@@ -234,11 +233,11 @@ public final class Alu {
      *            if not
      * @return an integer : the combined result difference and flags value
      * @throws IllegalArgumentException
-     *             if l or r is not an 16-bits value
+     *             in debug mode, if l or r is not an 16-bits value
      */
     public static int sub(int l, int r, boolean b0) {
-        Preconditions.checkBits8(l);
-        Preconditions.checkBits8(r);
+        Preconditions.checkBits8IfDebug(l);
+        Preconditions.checkBits8IfDebug(r);
 
         int borrow = (b0 ? 1 : 0);
         boolean c = l < r + borrow;
@@ -280,11 +279,11 @@ public final class Alu {
      *            boolean : c flag's value
      * @return an integer : adjusted value to BCD format
      * @throws IllegalArgumentException
-     *             if v is not an 8-bits value
+     *             in debug mode, if v is not an 8-bits value
      */
     public static int bcdAdjust(int v, boolean n, boolean h, boolean c) {
 
-        Preconditions.checkBits8(v);
+        Preconditions.checkBits8IfDebug(v);
 
         boolean fixL = h || (!n && (Bits.clip(4, v) > 0x9));
         boolean fixH = c || (!n && (v > 0x99));
@@ -305,11 +304,11 @@ public final class Alu {
      *            integer : 2nd value
      * @return an integer : bit-to-bit "and" result combined to the flags
      * @throws IllegalArgumentException
-     *             if l or r is not an 8-bits value
+     *             in debug mode, if l or r is not an 8-bits value
      */
     public static int and(int l, int r) {
-        Preconditions.checkBits8(l);
-        Preconditions.checkBits8(r);
+        Preconditions.checkBits8IfDebug(l);
+        Preconditions.checkBits8IfDebug(r);
         int v = l & r;
         boolean z = (v == 0);
         return packValueZNHC(v, z, false, true, false);
@@ -325,11 +324,11 @@ public final class Alu {
      * @return an integer : the bit-to-bit "inclusive or" result combined with
      *         the flags
      * @throws IllegalArgumentException
-     *             if l or r is not an 8-bits value
+     *             in debug mode, if l or r is not an 8-bits value
      */
     public static int or(int l, int r) {
-        Preconditions.checkBits8(l);
-        Preconditions.checkBits8(r);
+        Preconditions.checkBits8IfDebug(l);
+        Preconditions.checkBits8IfDebug(r);
 
         int v = l | r;
         boolean z = (v == 0);
@@ -346,11 +345,11 @@ public final class Alu {
      * @return an integer : the bit-to-bit "exclusive or" result combined with
      *         the flags
      * @throws IllegalArgumentException
-     *             if l or r is not an 8-bits value
+     *             in debug mode, if l or r is not an 8-bits value
      */
     public static int xor(int l, int r) {
-        Preconditions.checkBits8(l);
-        Preconditions.checkBits8(r);
+        Preconditions.checkBits8IfDebug(l);
+        Preconditions.checkBits8IfDebug(r);
 
         int v = l ^ r;
         boolean z = (v == 0);
@@ -366,10 +365,10 @@ public final class Alu {
      *            integer : the 8 bits value to be shifted
      * @return an integer : the shifted value combined with the flags
      * @throws IllegalArgumentException
-     *             if v is not an 8-bits value
+     *             in debug mode, if v is not an 8-bits value
      */
     public static int shiftLeft(int v) {
-        Preconditions.checkBits8(v);
+        Preconditions.checkBits8IfDebug(v);
 
         int value = Bits.clip(Byte.SIZE, v << 1);
         boolean z = (value == 0);
@@ -386,10 +385,10 @@ public final class Alu {
      *            integer : the 8-bits value to be shifted
      * @return an integer : the shifted value combined with the flags
      * @throws IllegalArgumentException
-     *             if v is not an 8-bits value
+     *             in debug mode, if v is not an 8-bits value
      */
     public static int shiftRightA(int v) {
-        Preconditions.checkBits8(v);
+        Preconditions.checkBits8IfDebug(v);
 
         int value = Bits.clip(Byte.SIZE, Bits.signExtend8(v) >> 1);
         boolean z = (value == 0);
@@ -406,10 +405,10 @@ public final class Alu {
      *            integer : the 8 bits value to be shifted
      * @return an integer : the shifted value combined with appropriate flags
      * @throws IllegalArgumentException
-     *             if v is not an 8-bits value
+     *             in debug mode, if v is not an 8-bits value
      */
     public static int shiftRightL(int v) {
-        Preconditions.checkBits8(v);
+        Preconditions.checkBits8IfDebug(v);
 
         int value = v >>> 1;
         boolean z = (value == 0);
@@ -428,10 +427,10 @@ public final class Alu {
      *            integer : the value to be rotated
      * @return integer : the rotated value combined with appropriate flags
      * @throws IllegalArgumentException
-     *             if v is not an 8-bits value
+     *             in debug mode, if v is not an 8-bits value
      */
     public static int rotate(RotDir d, int v) {
-        Preconditions.checkBits8(v);
+        Preconditions.checkBits8IfDebug(v);
 
         int rotValue = rotateFor9or8Int(d, v, false);
 
@@ -456,10 +455,10 @@ public final class Alu {
      *            a boolean : true if there is a carry, false if not
      * @return rotated value combined with appropriate flags
      * @throws IllegalArgumentException
-     *             if v is not an 8-bits value
+     *             in debug mode, if v is not an 8-bits value
      */
     public static int rotate(RotDir d, int v, boolean c) {
-        Preconditions.checkBits8(v);
+        Preconditions.checkBits8IfDebug(v);
 
         int nineBitsValue = v | (c ? Bits.mask(Byte.SIZE) : 0);
 
@@ -504,10 +503,10 @@ public final class Alu {
      *            the value to be swapped
      * @return resulting value combined with appropriate flags
      * @throws IllegalArgumentException
-     *             if the value is not an 8-bits value
+     *             in debug mode, if the value is not an 8-bits value
      */
     public static int swap(int v) {
-        Preconditions.checkBits8(v);
+        Preconditions.checkBits8IfDebug(v);
         v = Bits.rotate(Byte.SIZE, v, 4);
         return packValueZNHC(v, v == 0, false, false, false);
     }
@@ -522,13 +521,14 @@ public final class Alu {
      *            an integer : the bit of the value we want to test
      * @return integer : the combined 0 value and flags Z010
      * @throws IllegalArgumentException
-     *             if the value is not 8-bits
+     *             in debug mode, if the value is not 8-bits
      * @throws IndexOutOfBoundsException
-     *             if bitIndex is less than zero or greater than 7
+     *             in debug mode, if bitIndex is less than zero or greater than
+     *             7
      */
     public static int testBit(int v, int bitIndex) {
-        Preconditions.checkBits8(v);
-        Objects.checkIndex(bitIndex, Byte.SIZE);
+        Preconditions.checkBits8IfDebug(v);
+        Preconditions.checkIndexIfDebug(bitIndex, Byte.SIZE);
 
         return packValueZNHC(0, !Bits.test(v, bitIndex), false, true, false);
     }
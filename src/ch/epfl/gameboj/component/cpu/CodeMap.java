@@ -0,0 +1,262 @@
+package ch.epfl.gameboj.component.cpu;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.function.IntUnaryOperator;
+import java.util.zip.CRC32;
+
+import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.bits.Bits;
+import ch.epfl.gameboj.component.cartridge.Cartridge;
+import ch.epfl.gameboj.component.memory.Rom;
+
+/**
+ * The map of the code of a cartridge : the indexes, in its read-only memory,
+ * where the blocks executed by the Cpu start. It is found by a recursive
+ * descent from the entry point of the cartridge, its resets and its
+ * interruption handlers, following every jump, call and return address whose
+ * bank is known. The code that is only reached through a computed jump or
+ * through a bank that is not known statically is not found, and is left to
+ * the Cpu. Only these indexes are kept : the blocks are decoded from them
+ * again every time a GameBoy is built
+ *
+ * @author Sophie du Couédic (260007)
+ * @author Arnaud Robert (287964)
+ */
+public final class CodeMap {
+
+    private static final int ENTRY_POINT = 0x100;
+    private static final int SWITCHABLE_BANK_START = Cpu.ROM_BANK_SIZE;
+    private static final int SWITCHABLE_BANK_END = 2 * Cpu.ROM_BANK_SIZE;
+    private static final String CACHE_EXTENSION = ".code";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+
+    private final int[] blockStarts;
+
+    private CodeMap(int[] blockStarts) {
+        this.blockStarts = blockStarts;
+    }
+
+    /**
+     * Finds the code of the given cartridge
+     *
+     * @param cartridge
+     *            a Cartridge : the cartridge
+     * @return a CodeMap : the map of the code of the cartridge
+     * @throws NullPointerException
+     *             if cartridge is null
+     */
+    public static CodeMap of(Cartridge cartridge) {
+        Rom rom = cartridge.rom();
+        BitSet starts = new BitSet(rom.size());
+        Deque<Integer> toVisit = new ArrayDeque<>();
+
+        toVisit.push(ENTRY_POINT);
+        for (int address : AddressMap.RESETS) {
+            toVisit.push(address);
+        }
+        for (int address : AddressMap.INTERRUPTS) {
+            toVisit.push(address);
+        }
+
+        while (!toVisit.isEmpty()) {
+            int index = toVisit.pop();
+            if (index < 0 || index >= rom.size() || starts.get(index)) {
+                continue;
+            }
+            starts.set(index);
+            visitBlock(rom, index, toVisit);
+        }
+
+        return new CodeMap(starts.stream().toArray());
+    }
+
+    /**
+     * Returns the map of the code of the given cartridge kept in the given
+     * directory, or finds it and keeps it there if it is not yet or if the
+     * kept one is not valid for this cartridge. The file of a cartridge is
+     * named after the checksum of its read-only memory, and is replaced at
+     * once when it is written
+     *
+     * @param cartridge
+     *            a Cartridge : the cartridge
+     * @param directory
+     *            a File : the directory of the maps
+     * @return a CodeMap : the map of the code of the cartridge
+     * @throws IOException
+     *             if the map can not be read from or written to the directory
+     * @throws NullPointerException
+     *             if cartridge or directory is null
+     */
+    public static CodeMap cached(Cartridge cartridge, File directory)
+            throws IOException {
+        String name = String.format("%08x", checksum(cartridge.rom()));
+        File file = new File(Objects.requireNonNull(directory),
+                name + CACHE_EXTENSION);
+
+        if (file.isFile()) {
+            int[] blockStarts = read(file, cartridge.rom().size());
+            if (blockStarts != null) {
+                return new CodeMap(blockStarts);
+            }
+        }
+
+        CodeMap map = of(cartridge);
+        directory.mkdirs();
+        File temporary = File.createTempFile(name, TEMPORARY_EXTENSION,
+                directory);
+        try {
+            try (OutputStream s = new FileOutputStream(temporary);
+                    DataOutputStream out = new DataOutputStream(s)) {
+                out.writeInt(map.blockStarts.length);
+                for (int index : map.blockStarts) {
+                    out.writeInt(index);
+                }
+            }
+            Files.move(temporary.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temporary.delete();
+        }
+        return map;
+    }
+
+    /**
+     * Returns the indexes, in the read-only memory of the cartridge, where the
+     * blocks of code start, in increasing order
+     *
+     * @return an array of int : the indexes where the blocks start
+     */
+    public int[] blockStarts() {
+        return Arrays.copyOf(blockStarts, blockStarts.length);
+    }
+
+    // Decodes the block that starts at the given index exactly as the Cpu does,
+    // and pushes the indexes of the blocks that may be executed after it
+    private static void visitBlock(Rom rom, int index, Deque<Integer> toVisit) {
+        int bankStart = index - index % Cpu.ROM_BANK_SIZE;
+        int address = bankStart == 0 ? index
+                : SWITCHABLE_BANK_START + index - bankStart;
+        int addressStart = address - index % Cpu.ROM_BANK_SIZE;
+        IntUnaryOperator memory = a -> rom.read(bankStart + a - addressStart);
+        int endAddress = addressStart + Cpu.ROM_BANK_SIZE;
+
+        Opcode instruction = null;
+        for (int length = 0; length < Cpu.MAX_BLOCK_LENGTH; ++length) {
+            instruction = Cpu.opcodeAt(memory, address, endAddress);
+            if (instruction == null) {
+                return;
+            }
+            address += instruction.totalBytes;
+            if (Cpu.endsBlock(instruction)) {
+                break;
+            }
+        }
+
+        int next = address;
+        switch (instruction.family) {
+        case JP_N16:
+        case JP_CC_N16:
+        case CALL_N16:
+        case CALL_CC_N16:
+            push(rom, bankStart, target16(memory, next), toVisit);
+            break;
+        case JR_E8:
+        case JR_CC_E8:
+            push(rom, bankStart, Bits.clip(16,
+                    next + Bits.signExtend8(memory.applyAsInt(next - 1))),
+                    toVisit);
+            break;
+        default:
+            break;
+        }
+
+        if (fallsThrough(instruction) && next < endAddress) {
+            toVisit.push(bankStart + next - addressStart);
+        }
+    }
+
+    // Tells if the instruction that follows the given one in memory may be
+    // executed after it
+    private static boolean fallsThrough(Opcode instruction) {
+        switch (instruction.family) {
+        case JP_N16:
+        case JR_E8:
+        case JP_HL:
+        case RET:
+        case RETI:
+        case STOP:
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    private static int target16(IntUnaryOperator memory, int next) {
+        return Bits.make16(memory.applyAsInt(next - 1),
+                memory.applyAsInt(next - 2));
+    }
+
+    // Pushes the index of the given address, seen from code of the given bank.
+    // The switchable bank of code in the fixed bank is only known when there
+    // are two banks
+    private static void push(Rom rom, int bankStart, int address,
+            Deque<Integer> toVisit) {
+        if (address < SWITCHABLE_BANK_START) {
+            toVisit.push(address);
+        } else if (address < SWITCHABLE_BANK_END) {
+            if (bankStart != 0) {
+                toVisit.push(bankStart + address - SWITCHABLE_BANK_START);
+            } else if (rom.size() == SWITCHABLE_BANK_END) {
+                toVisit.push(address);
+            }
+        }
+    }
+
+    // Reads the indexes kept in the given file, or returns null if they are
+    // not strictly increasing indexes of a rom of the given size, as written
+    // by cached
+    private static int[] read(File file, int romSize) throws IOException {
+        try (InputStream s = new FileInputStream(file);
+                DataInputStream in = new DataInputStream(s)) {
+            int count = in.readInt();
+            if (count < 0 || count > romSize) {
+                return null;
+            }
+            int[] blockStarts = new int[count];
+            for (int i = 0; i < count; ++i) {
+                blockStarts[i] = in.readInt();
+                if (blockStarts[i] < 0 || blockStarts[i] >= romSize
+                        || (i > 0 && blockStarts[i] <= blockStarts[i - 1])) {
+                    return null;
+                }
+            }
+            return in.read() == -1 ? blockStarts : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static long checksum(Rom rom) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < rom.size(); ++i) {
+            crc.update(rom.read(i));
+        }
+        return crc.getValue();
+    }
+}
@@ -1,17 +1,21 @@
 package ch.epfl.gameboj.component.cpu;
 
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.function.IntUnaryOperator;
+
 import ch.epfl.gameboj.AddressMap;
 import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.Register;
-import ch.epfl.gameboj.RegisterFile;
 import ch.epfl.gameboj.bits.Bit;
 import ch.epfl.gameboj.bits.Bits;
 import ch.epfl.gameboj.component.Clocked;
 import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.cpu.Alu.RotDir;
+import ch.epfl.gameboj.component.memory.BootRomController;
 import ch.epfl.gameboj.component.memory.Ram;
+import ch.epfl.gameboj.component.memory.Rom;
 
 /**
  * Central Processing Unit
@@ -22,10 +26,16 @@ import ch.epfl.gameboj.component.memory.Ram;
  */
 public final class Cpu implements Component, Clocked {
 
-    private static final int PREFIX_IDENTIFICATOR = 0xCB;
+    static final int PREFIX_IDENTIFICATOR = 0xCB;
     private static final int NUMBER_OF_OPCODES_OF_A_KIND = 256;
-
-    private final RegisterFile<Reg> file;
+    static final int MAX_BLOCK_LENGTH = 64;
+    static final int ROM_BANK_SIZE = 0x4000;
+    private static final int MAX_ROM_BANKS = 0x80;
+    private static final int CODE_RAM_START = AddressMap.WORK_RAM_START;
+    private static final int CODE_RAM_END = AddressMap.HIGH_RAM_END + 1;
+    private static final int CODE_PAGE_SIZE = 0x100;
+
+    private final int[] regs;
     private int SP;
     private int PC;
     private Bus bus;
@@ -35,12 +45,42 @@ public final class Cpu implements Component, Clocked {
     private static final Opcode[] PREFIXED_OPCODE_TABLE = buildOpcodeTable(
             Opcode.Kind.PREFIXED);
 
+    private final OpcodeHandler[] directHandlers;
+    private final OpcodeHandler[] prefixedHandlers;
+
     private long nextNonIdleCycle;
+    private long currentCycle;
+    private long limit;
+    private boolean registerWritten;
+
+    private int loopPC;
+    private long loopCycle;
+    private int loopAFBC, loopDEHL, loopSP;
+    private boolean loopIME;
+    private boolean loopSideEffects;
+
+    private FlagOp flagOp;
+    private int flagL, flagR, flagResult;
+    private boolean flagCarry;
+
+    private BootRomController romController;
+    private final Block[][] romBlocks;
+    private final Block[] ramBlocks;
+    private final boolean[] ramPagesWithBlocks;
+    private boolean blockInvalidated;
+
+    private Profiler profiler;
+    private OpcodeHistogram histogram;
+    private int endedFrames;
+    private TraceBuffer trace;
+    private boolean instrumented;
 
     private final Ram highRam;
     private boolean IME;
     private int IE;
     private int IF;
+    private int pendingInterrupts;
+    private boolean interruptReady;
 
     private enum Reg implements Register {
         A, F, B, C, D, E, H, L
@@ -54,6 +94,38 @@ public final class Cpu implements Component, Clocked {
         V0, V1, ALU, CPU
     }
 
+    // The operation whose flags have not been computed yet, NONE meaning that
+    // register F is up to date. OR is also the one of XOR, that sets the same
+    // flags Z000
+    private enum FlagOp {
+        NONE, ADD, SUB, AND, OR, INC, DEC
+    }
+
+    // A straight-line run of instructions, decoded once, that ends with the
+    // first instruction that may not be followed by the next one in memory
+    // (jumps, calls, returns, HALT...) or with the end of its rom bank or of
+    // its page of ram. Each entry of a block is either one instruction or a
+    // superinstruction, with its size in bytes and its cycles
+    private static final class Block {
+        private final int[] sizes;
+        private final int[] cycles;
+        private final OpcodeHandler[] handlers;
+
+        private Block(int[] sizes, int[] cycles, OpcodeHandler[] handlers) {
+            this.sizes = sizes;
+            this.cycles = cycles;
+            this.handlers = handlers;
+        }
+    }
+
+    // The execution of a decoded opcode, that receives the address of the
+    // instruction following it and returns the address of the next instruction
+    // to execute
+    @FunctionalInterface
+    private interface OpcodeHandler {
+        int execute(int nextPC);
+    }
+
     /**
      * All interruptions that can be possibly be requested by the game
      * 
@@ -74,13 +146,21 @@ public final class Cpu implements Component, Clocked {
     public Cpu() {
 
         highRam = new Ram(AddressMap.HIGH_RAM_SIZE);
-        file = new RegisterFile<Reg>(Reg.values());
+        regs = new int[Reg.values().length];
+        flagOp = FlagOp.NONE;
+        directHandlers = buildHandlerTable(DIRECT_OPCODE_TABLE);
+        prefixedHandlers = buildHandlerTable(PREFIXED_OPCODE_TABLE);
+        romBlocks = new Block[MAX_ROM_BANKS][];
+        ramBlocks = new Block[CODE_RAM_END - CODE_RAM_START];
+        ramPagesWithBlocks = new boolean[ramBlocks.length / CODE_PAGE_SIZE];
         SP = 0;
         PC = 0;
         IME = false;
         IF = 0;
         IE = 0;
+        updateInterrupts();
         nextNonIdleCycle = 0;
+        currentCycle = 0;
     }
 
     /**
@@ -100,27 +180,594 @@ public final class Cpu implements Component, Clocked {
         }
     }
 
-    private void reallyCycle() {
-        if (IME && checkInterruptionIEIF()) {
-            IME = false;
+    /**
+     * Specific override for the Cpu, the instructions are executed back to back
+     * until the given limit is reached (see runUntil). The returned cycle is
+     * the one of the last executed instruction
+     */
+    @Override
+    public long cycleUntil(long cycle, long limit) {
+        if (nextNonIdleCycle == Long.MAX_VALUE && checkInterruptionIEIF()) {
+            nextNonIdleCycle = cycle;
+        }
+        runUntil(limit);
+        return Math.max(cycle, currentCycle);
+    }
+
+    /**
+     * Executes the instructions back to back, starting from the next non idle
+     * cycle of the Cpu, until the given cycle is reached. The execution stops
+     * earlier if the Cpu falls asleep or if an instruction writes in one of
+     * the memory-mapped registers, since this write may change the moment at
+     * which the other components have something to execute.
+     * 
+     * Since nothing but the Cpu itself can change the memory before the given
+     * cycle, a loop that goes back to the same state without writing anything
+     * (typically a loop that waits for LY or for a flag set by an interruption
+     * handler) will keep on doing so until this cycle. Its remaining
+     * iterations are therefore skipped, unless the Cpu is profiled, counted or
+     * traced, in which case they are all executed and recorded
+     * 
+     * @param cycle
+     *            a long : the first cycle that must not be executed
+     */
+    public void runUntil(long cycle) {
+        limit = cycle;
+        registerWritten = false;
+        loopPC = -1;
+        while (nextNonIdleCycle < cycle && !registerWritten) {
+            int previousPC = PC;
+            Block block = interruptReady || instrumented ? null : block(PC);
+            if (block != null && block.handlers.length > 0) {
+                previousPC = executeBlock(block, cycle);
+            } else if (!instrumented) {
+                reallyCycle();
+            } else {
+                instrumentedCycle();
+            }
+            if (PC <= previousPC && nextNonIdleCycle < cycle
+                    && !instrumented) {
+                skipIdleLoop(cycle);
+            }
+        }
+    }
+
+    /**
+     * Gives to the Cpu the controller of the read-only memories, so that it
+     * can find in which bank of the cartridge the code it executes lies. The
+     * decoded instructions of the cartridge are then kept from one execution
+     * to the other, for every bank
+     * 
+     * @param romController
+     *            a BootRomController : the controller of the read-only
+     *            memories
+     * @throws NullPointerException
+     *             if romController is null
+     */
+    public void setRomController(BootRomController romController) {
+        this.romController = Objects.requireNonNull(romController);
+    }
+
+    // Executes the instructions of the block, starting from the first one,
+    // until the given cycle is reached, a memory-mapped register is written or
+    // the block is invalidated by a write in its page of ram or in the bank
+    // controller. Returns the address of the last executed instruction
+    private int executeBlock(Block block, long limit) {
+        blockInvalidated = false;
+        int instructionPC;
+        int i = 0;
+        do {
+            instructionPC = PC;
+            currentCycle = nextNonIdleCycle;
+            PC = block.handlers[i].execute(PC + block.sizes[i]);
+            nextNonIdleCycle += block.cycles[i];
+        } while (++i < block.handlers.length && nextNonIdleCycle < limit
+                && !registerWritten && !blockInvalidated);
+        return instructionPC;
+    }
+
+    /**
+     * Decodes right away the blocks of the cartridge that start at the given
+     * indexes of its read-only memory, typically found by a CodeMap. These
+     * blocks are then not decoded at their first execution
+     * 
+     * @param rom
+     *            a Rom : the read-only memory of the cartridge
+     * @param blockStarts
+     *            an array of int : the indexes in rom where the blocks start
+     * @throws IndexOutOfBoundsException
+     *             if an index is not one of rom
+     */
+    public void decodeBlocks(Rom rom, int[] blockStarts) {
+        for (int index : blockStarts) {
+            Objects.checkIndex(index, rom.size());
+            Block[] bank = romBlocks[index / ROM_BANK_SIZE];
+            if (bank == null) {
+                bank = new Block[ROM_BANK_SIZE];
+                romBlocks[index / ROM_BANK_SIZE] = bank;
+            }
+            int bankStart = index - index % ROM_BANK_SIZE;
+            if (bank[index - bankStart] == null) {
+                bank[index - bankStart] = decodeBlock(
+                        a -> rom.read(bankStart + a), index - bankStart,
+                        ROM_BANK_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Gives to the Cpu a profiler that records every instruction it executes,
+     * or removes it. While it is profiled, the Cpu executes its instructions
+     * one by one, without its blocks
+     * 
+     * @param profiler
+     *            a Profiler : the profiler, or null to stop profiling
+     */
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+        updateInstrumented();
+    }
+
+    /**
+     * Gives to the Cpu a histogram that counts every instruction it executes,
+     * or removes it. A frame of the histogram is ended every time the LCD
+     * screen ends a frame (see endFrame). While it is counted, the Cpu executes
+     * its instructions one by one, without its blocks
+     * 
+     * @param histogram
+     *            an OpcodeHistogram : the histogram, or null to stop counting
+     */
+    public void setHistogram(OpcodeHistogram histogram) {
+        this.histogram = histogram;
+        endedFrames = 0;
+        updateInstrumented();
+    }
+
+    /**
+     * Gives to the Cpu a trace that records the last instructions it executes,
+     * or removes it. While it is traced, the Cpu executes its instructions one
+     * by one, without its blocks, and stops at the breakpoints of the trace.
+     * The disassembly of the trace is attached, as a suppressed exception, to
+     * the exceptions thrown by the instructions
+     * 
+     * @param trace
+     *            a TraceBuffer : the trace, or null to stop tracing
+     */
+    public void setTrace(TraceBuffer trace) {
+        this.trace = trace;
+        updateInstrumented();
+    }
+
+    private void updateInstrumented() {
+        instrumented = profiler != null || histogram != null || trace != null;
+    }
+
+    // Executes the next instruction alone and records it in the profiler, in
+    // the histogram and in the trace, unless an interruption is handled
+    // instead (which only the trace records). The frames ended by the LCD
+    // since the previous instruction are ended in the histogram first
+    private void instrumentedCycle() {
+        for (; endedFrames > 0; --endedFrames) {
+            if (histogram != null) {
+                histogram.endFrame();
+            }
+        }
+
+        int instructionPC = PC;
+        long startCycle = nextNonIdleCycle;
+        if (trace != null) {
+            recordTrace();
+        }
+
+        Opcode instruction;
+        try {
+            instruction = reallyCycle();
+        } catch (RuntimeException | Error e) {
+            if (trace != null) {
+                e.addSuppressed(new Exception(
+                        "last instructions :\n" + trace.disassemble()));
+            }
+            throw e;
+        }
+        if (instruction == null) {
+            return;
+        }
+        if (profiler != null) {
+            int romIndex = instructionPC < AddressMap.VIDEO_RAM_START
+                    && romController != null
+                            ? romController.romIndex(instructionPC)
+                            : -1;
+            long cycles = nextNonIdleCycle == Long.MAX_VALUE ? 0
+                    : nextNonIdleCycle - startCycle;
+            profiler.record(romIndex, instructionPC, cycles);
+        }
+        if (histogram != null) {
+            histogram.record(instruction);
+        }
+    }
+
+    // Records in the trace the instruction that is about to be executed, or
+    // the interruption that is about to be handled, and calls the handler of
+    // the breakpoints if there is one at its address
+    private void recordTrace() {
+        int instructionBytes = interruptReady ? -1
+                : bus.read(PC) | bus.read(Bits.clip(16, PC + 1)) << Byte.SIZE
+                        | bus.read(Bits.clip(16, PC + 2)) << 2 * Byte.SIZE;
+        trace.record(nextNonIdleCycle, PC, instructionBytes,
+                reg16(Reg16.AF) << Short.SIZE | reg16(Reg16.BC),
+                reg16(Reg16.DE) << Short.SIZE | reg16(Reg16.HL), SP);
+        if (trace.isBreakpoint(PC)) {
+            trace.breakpointReached();
+        }
+    }
+
+    // Returns the block starting at the given address, decoding it the first
+    // time, or null if the code at this address is not cached : only the code
+    // of the cartridge, of the work ram and of the high ram is
+    private Block block(int address) {
+        if (address < AddressMap.VIDEO_RAM_START) {
+            int index = romController == null ? -1
+                    : romController.romIndex(address);
+            if (index < 0) {
+                return null;
+            }
+            Block[] bank = romBlocks[index / ROM_BANK_SIZE];
+            if (bank == null) {
+                bank = new Block[ROM_BANK_SIZE];
+                romBlocks[index / ROM_BANK_SIZE] = bank;
+            }
+            Block block = bank[index % ROM_BANK_SIZE];
+            if (block == null) {
+                block = decodeBlock(bus::read, address,
+                        address - address % ROM_BANK_SIZE + ROM_BANK_SIZE);
+                bank[index % ROM_BANK_SIZE] = block;
+            }
+            return block;
+        }
+
+        if (!isCodeRam(address)) {
+            return null;
+        }
+        Block block = ramBlocks[address - CODE_RAM_START];
+        if (block == null) {
+            int pageEnd = address - address % CODE_PAGE_SIZE + CODE_PAGE_SIZE;
+            block = decodeBlock(bus::read, address,
+                    Math.min(pageEnd, AddressMap.HIGH_RAM_END));
+            ramBlocks[address - CODE_RAM_START] = block;
+            ramPagesWithBlocks[(address - CODE_RAM_START)
+                    / CODE_PAGE_SIZE] = true;
+        }
+        return block;
+    }
+
+    // Decodes the instructions of the given memory starting from the given
+    // address, none of them going beyond the given end address
+    private Block decodeBlock(IntUnaryOperator memory, int address,
+            int endAddress) {
+        Opcode[] opcodes = new Opcode[MAX_BLOCK_LENGTH];
+        OpcodeHandler[] handlers = new OpcodeHandler[MAX_BLOCK_LENGTH];
+        int length = 0;
+
+        while (length < MAX_BLOCK_LENGTH) {
+            Opcode instruction = opcodeAt(memory, address, endAddress);
+            if (instruction == null) {
+                break;
+            }
+
+            opcodes[length] = instruction;
+            handlers[length] = instruction.kind == Opcode.Kind.DIRECT
+                    ? directHandlers[instruction.encoding]
+                    : prefixedHandlers[instruction.encoding];
+            ++length;
+            address += instruction.totalBytes;
+
+            if (endsBlock(instruction)) {
+                break;
+            }
+        }
+
+        return fuse(opcodes, handlers, length);
+    }
+
+    // Builds the block of the given instructions, each idiom of which is
+    // replaced by a superinstruction
+    private Block fuse(Opcode[] opcodes, OpcodeHandler[] handlers,
+            int length) {
+        int[] sizes = new int[length];
+        int[] cycles = new int[length];
+        OpcodeHandler[] entries = new OpcodeHandler[length];
+        int count = 0;
+
+        for (int i = 0; i < length; ++count) {
+            int fused = 1;
+            OpcodeHandler handler = handlers[i];
+            if (isCopyIdiom(opcodes, i, length)) {
+                fused = 4;
+                handler = this::copySuperinstruction;
+            } else if (isDecrementLoopIdiom(opcodes, i, length)) {
+                fused = 2;
+                handler = decrementLoopSuperinstruction(
+                        extractReg(opcodes[i], 3));
+            }
+
+            entries[count] = handler;
+            for (int j = i; j < i + fused; ++j) {
+                sizes[count] += opcodes[j].totalBytes;
+                cycles[count] += opcodes[j].cycles;
+            }
+            i += fused;
+        }
+
+        return new Block(Arrays.copyOf(sizes, count),
+                Arrays.copyOf(cycles, count), Arrays.copyOf(entries, count));
+    }
+
+    // LD A,(HL+) ; LD (DE),A ; INC DE ; DEC BC : one step of a copy
+    private static boolean isCopyIdiom(Opcode[] opcodes, int i, int length) {
+        return i + 3 < length && opcodes[i] == Opcode.LD_A_HLRI
+                && opcodes[i + 1] == Opcode.LD_DER_A
+                && opcodes[i + 2] == Opcode.INC_DE
+                && opcodes[i + 3] == Opcode.DEC_BC;
+    }
+
+    // DEC r ; JR NZ,e : the end of a counted loop
+    private static boolean isDecrementLoopIdiom(Opcode[] opcodes, int i,
+            int length) {
+        return i + 1 < length && opcodes[i].family == Opcode.Family.DEC_R8
+                && opcodes[i + 1] == Opcode.JR_NZ_E8;
+    }
+
+    /*
+     * ------------------------- Superinstructions -------------------------
+     */
+    // A superinstruction does the work of several instructions with a single
+    // handler, and is accounted for by its executor as a single instruction
+    // whose cycles are the sum of theirs. Each of its instructions still
+    // accesses the bus during its own cycle. If the execution of the block
+    // would have stopped after one of them (see executeBlock), the
+    // superinstruction stops there too, gives back the cycles of the
+    // instructions it did not execute and returns the address of the first of
+    // them
+
+    private int copySuperinstruction(int nextPC) {
+        long cycle = nextNonIdleCycle;
+
+        setReg(Reg.A, read8AtHl());
+        incrementOrDecrementHl(1);
+        if (cycle + 2 >= limit) {
+            return stopSuperinstruction(6, nextPC - 3);
+        }
+
+        currentCycle = cycle + 2;
+        write8(reg16(Reg16.DE), reg(Reg.A));
+        if (cycle + 4 >= limit || registerWritten || blockInvalidated) {
+            return stopSuperinstruction(4, nextPC - 2);
+        }
+
+        currentCycle = cycle + 4;
+        setReg16(Reg16.DE, Bits.clip(Short.SIZE, reg16(Reg16.DE) + 1));
+        if (cycle + 6 >= limit) {
+            return stopSuperinstruction(2, nextPC - 1);
+        }
+
+        currentCycle = cycle + 6;
+        setReg16(Reg16.BC, Bits.clip(Short.SIZE, reg16(Reg16.BC) - 1));
+        return nextPC;
+    }
+
+    private OpcodeHandler decrementLoopSuperinstruction(Reg r) {
+        int additionalCycles = Opcode.JR_NZ_E8.additionalCycles;
+        return nextPC -> {
+            long cycle = nextNonIdleCycle;
+
+            int value = dec8(reg(r));
+            setReg(r, value);
+            if (cycle + 1 >= limit) {
+                return stopSuperinstruction(Opcode.JR_NZ_E8.cycles,
+                        nextPC - Opcode.JR_NZ_E8.totalBytes);
+            }
+
+            currentCycle = cycle + 1;
+            if (value != 0) {
+                nextNonIdleCycle += additionalCycles;
+                return Bits.clip(16,
+                        nextPC + Bits.signExtend8(read8(nextPC - 1)));
+            }
+            return nextPC;
+        };
+    }
+
+    private int stopSuperinstruction(int remainingCycles, int nextPC) {
+        nextNonIdleCycle -= remainingCycles;
+        return nextPC;
+    }
+
+    /**
+     * Returns the opcode of the given kind that has the given encoding
+     * 
+     * @param kind
+     *            an Opcode.Kind : the kind of the opcode
+     * @param encoding
+     *            an int : the encoding of the opcode
+     * @return an Opcode : the opcode, or null if there is none
+     */
+    static Opcode opcode(Opcode.Kind kind, int encoding) {
+        return kind == Opcode.Kind.DIRECT ? DIRECT_OPCODE_TABLE[encoding]
+                : PREFIXED_OPCODE_TABLE[encoding];
+    }
+
+    /**
+     * Returns the instruction of the given memory at the given address, or
+     * null if there is none or if it goes beyond the given end address
+     * 
+     * @param memory
+     *            an IntUnaryOperator : the memory, that gives the byte at an
+     *            address
+     * @param address
+     *            an int : the address of the instruction
+     * @param endAddress
+     *            an int : the first address that the instruction must not
+     *            contain
+     * @return an Opcode : the instruction, or null
+     */
+    static Opcode opcodeAt(IntUnaryOperator memory, int address,
+            int endAddress) {
+        if (address >= endAddress) {
+            return null;
+        }
+        int encoding = memory.applyAsInt(address);
+        Opcode instruction;
+        if (encoding != PREFIX_IDENTIFICATOR) {
+            instruction = DIRECT_OPCODE_TABLE[encoding];
+        } else if (address + 1 < endAddress) {
+            instruction = PREFIXED_OPCODE_TABLE[memory
+                    .applyAsInt(address + 1)];
+        } else {
+            return null;
+        }
+        return instruction == null
+                || address + instruction.totalBytes > endAddress ? null
+                        : instruction;
+    }
+
+    /**
+     * Tells if the given instruction ends the block it belongs to, that is if
+     * the next instruction to execute may not be the one that follows it in
+     * memory
+     * 
+     * @param instruction
+     *            an Opcode : the instruction
+     * @return a boolean : true if the instruction ends its block
+     */
+    static boolean endsBlock(Opcode instruction) {
+        switch (instruction.family) {
+        case JP_HL:
+        case JP_N16:
+        case JP_CC_N16:
+        case JR_E8:
+        case JR_CC_E8:
+        case CALL_N16:
+        case CALL_CC_N16:
+        case RST_U3:
+        case RET:
+        case RET_CC:
+        case RETI:
+        case EDI:
+        case HALT:
+        case STOP:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static boolean isCodeRam(int address) {
+        return (address >= AddressMap.WORK_RAM_START
+                && address < AddressMap.WORK_RAM_END)
+                || (address >= AddressMap.HIGH_RAM_START
+                        && address < AddressMap.HIGH_RAM_END);
+    }
+
+    // Forgets the blocks of the page of ram that contains the given address,
+    // that has just been written
+    private void invalidateBlocks(int address) {
+        if (address >= AddressMap.ECHO_RAM_START
+                && address < AddressMap.ECHO_RAM_END) {
+            address -= AddressMap.ECHO_RAM_START - AddressMap.WORK_RAM_START;
+        }
+        if (isCodeRam(address)) {
+            int page = (address - CODE_RAM_START) / CODE_PAGE_SIZE;
+            if (ramPagesWithBlocks[page]) {
+                Arrays.fill(ramBlocks, page * CODE_PAGE_SIZE,
+                        (page + 1) * CODE_PAGE_SIZE, null);
+                ramPagesWithBlocks[page] = false;
+                blockInvalidated = true;
+            }
+        }
+    }
+
+    // Called after each jump backwards : if the Cpu is in the same state as
+    // after the previous jump to the same address and nothing has been written
+    // (or read from the timer) since then, the loop is idle and as many of its
+    // iterations as possible before the limit are skipped
+    private void skipIdleLoop(long limit) {
+        int AFBC = (reg16(Reg16.AF) << Short.SIZE) | reg16(Reg16.BC);
+        int DEHL = (reg16(Reg16.DE) << Short.SIZE) | reg16(Reg16.HL);
+
+        if (loopPC == PC && !loopSideEffects && loopAFBC == AFBC
+                && loopDEHL == DEHL && loopSP == SP && loopIME == IME
+                && !interruptReady) {
+            long period = nextNonIdleCycle - loopCycle;
+            nextNonIdleCycle += (limit - 1 - nextNonIdleCycle) / period * period;
+        } else {
+            loopPC = PC;
+            loopAFBC = AFBC;
+            loopDEHL = DEHL;
+            loopSP = SP;
+            loopIME = IME;
+            loopSideEffects = false;
+        }
+        loopCycle = nextNonIdleCycle;
+    }
+
+    /**
+     * Specific override for the Cpu : the Cpu is idle until its next
+     * instruction has to be executed. When the Cpu is asleep, it is idle
+     * until an interruption is requested
+     */
+    @Override
+    public long nextNonIdleCycle(long cycle) {
+        if (nextNonIdleCycle == Long.MAX_VALUE && checkInterruptionIEIF()) {
+            return cycle;
+        }
+        return nextNonIdleCycle;
+    }
+
+    /**
+     * Returns the cycle during which the Cpu started to execute its current
+     * instruction, or its last one if it is between two instructions or
+     * asleep. Since the Cpu is the only component that accesses the bus on its
+     * own, this is the cycle during which the other components are accessed
+     * 
+     * @return a long : the cycle of the current instruction
+     */
+    public long currentCycle() {
+        return currentCycle;
+    }
+
+    // Executes the next instruction, or handles an interruption. Returns the
+    // executed instruction, or null if an interruption has been handled
+    private Opcode reallyCycle() {
+        currentCycle = nextNonIdleCycle;
+
+        if (interruptReady) {
             int index = checkInterruptionIndex();
+            IME = false;
             IF = Bits.set(IF, index, false);
+            updateInterrupts();
             push16(PC);
             PC = AddressMap.INTERRUPTS[index];
             nextNonIdleCycle += 5;
+            return null;
         } else {
 
             int nextInstruction = read8(PC);
 
             Opcode instruction = null;
+            OpcodeHandler handler = null;
 
             if (nextInstruction != PREFIX_IDENTIFICATOR) {
                 instruction = DIRECT_OPCODE_TABLE[nextInstruction];
+                handler = directHandlers[nextInstruction];
             } else {
                 nextInstruction = read8AfterOpcode();
                 instruction = PREFIXED_OPCODE_TABLE[nextInstruction];
+                handler = prefixedHandlers[nextInstruction];
             }
-            dispatch(Objects.requireNonNull(instruction));
+            PC = Objects.requireNonNull(handler)
+                    .execute(PC + instruction.totalBytes);
+            nextNonIdleCycle += instruction.cycles;
+            return instruction;
         }
     }
 
@@ -132,11 +779,12 @@ public final class Cpu implements Component, Clocked {
      * within the range of the cpu's own ram.
      * 
      * @throws IllegalArgumentException
-     *             if the given address is not a valid 16-bits value
+     *             in debug mode, if the given address is not a valid 16-bits
+     *             value
      */
     @Override
     public int read(int address) {
-        Preconditions.checkBits16(address);
+        Preconditions.checkBits16IfDebug(address);
 
         if ((address < AddressMap.HIGH_RAM_START
                 || address >= AddressMap.HIGH_RAM_END)
@@ -158,13 +806,13 @@ public final class Cpu implements Component, Clocked {
      * IE.
      * 
      * @throws IllegalArgumentException
-     *             if address is not a valid 16-bit value or if data is not a
-     *             valid 8-bit value
+     *             in debug mode, if address is not a valid 16-bit value or if
+     *             data is not a valid 8-bit value
      */
     @Override
     public void write(int address, int data) {
-        Preconditions.checkBits16(address);
-        Preconditions.checkBits8(data);
+        Preconditions.checkBits16IfDebug(address);
+        Preconditions.checkBits8IfDebug(data);
 
         if (address >= AddressMap.HIGH_RAM_START
                 && address < AddressMap.HIGH_RAM_END) {
@@ -172,484 +820,645 @@ public final class Cpu implements Component, Clocked {
         }
         if (address == AddressMap.REG_IE) {
             IE = data;
+            updateInterrupts();
         }
         if (address == AddressMap.REG_IF) {
             IF = data;
+            updateInterrupts();
         }
     }
 
-    private void dispatch(Opcode instruction) {
-        int nextPC = PC + instruction.totalBytes;
-        boolean conditionVerified = false;
+    // Decodes once the given opcode into a handler that executes it, its
+    // operands (registers, conditions, bit indexes...) being already extracted
+    private OpcodeHandler decode(Opcode instruction) {
         switch (instruction.family) {
         case NOP: {
+            return nextPC -> nextPC;
         }
-            break;
         case LD_R8_HLR: {
-            file.set(extractReg(instruction, 3), read8AtHl());
+            Reg r = extractReg(instruction, 3);
+            return nextPC -> {
+                setReg(r, read8AtHl());
+                return nextPC;
+            };
         }
-            break;
         case LD_A_HLRU: {
-            file.set(Reg.A, read8AtHl());
-            incrementOrDecrementHl(instruction);
+            int increment = extractHlIncrement(instruction);
+            return nextPC -> {
+                setReg(Reg.A, read8AtHl());
+                incrementOrDecrementHl(increment);
+                return nextPC;
+            };
         }
-            break;
         case LD_A_N8R: {
-            file.set(Reg.A, read8(AddressMap.REGS_START + read8AfterOpcode()));
+            return nextPC -> {
+                setReg(Reg.A,
+                        read8(AddressMap.REGS_START + read8AfterOpcode()));
+                return nextPC;
+            };
         }
-
-            break;
         case LD_A_CR: {
-            file.set(Reg.A, read8(AddressMap.REGS_START + file.get(Reg.C)));
+            return nextPC -> {
+                setReg(Reg.A, read8(AddressMap.REGS_START + reg(Reg.C)));
+                return nextPC;
+            };
         }
-            break;
         case LD_A_N16R: {
-            file.set(Reg.A, read8(read16AfterOpcode()));
+            return nextPC -> {
+                setReg(Reg.A, read8(read16AfterOpcode()));
+                return nextPC;
+            };
         }
-            break;
         case LD_A_BCR: {
-            file.set(Reg.A, read8(reg16(Reg16.BC)));
+            return nextPC -> {
+                setReg(Reg.A, read8(reg16(Reg16.BC)));
+                return nextPC;
+            };
         }
-            break;
         case LD_A_DER: {
-            file.set(Reg.A, read8(reg16(Reg16.DE)));
+            return nextPC -> {
+                setReg(Reg.A, read8(reg16(Reg16.DE)));
+                return nextPC;
+            };
         }
-            break;
         case LD_R8_N8: {
-            file.set(extractReg(instruction, 3), read8AfterOpcode());
+            Reg r = extractReg(instruction, 3);
+            return nextPC -> {
+                setReg(r, read8AfterOpcode());
+                return nextPC;
+            };
         }
-            break;
         case LD_R16SP_N16: {
-            setReg16SP(extractReg16(instruction), read16AfterOpcode());
+            Reg16 r = extractReg16(instruction);
+            return nextPC -> {
+                setReg16SP(r, read16AfterOpcode());
+                return nextPC;
+            };
         }
-            break;
         case POP_R16: {
-            setReg16(extractReg16(instruction), pop16());
+            Reg16 r = extractReg16(instruction);
+            return nextPC -> {
+                setReg16(r, pop16());
+                return nextPC;
+            };
         }
-            break;
         case LD_HLR_R8: {
-            write8AtHl(file.get(extractReg(instruction, 0)));
+            Reg r = extractReg(instruction, 0);
+            return nextPC -> {
+                write8AtHl(reg(r));
+                return nextPC;
+            };
         }
-            break;
         case LD_HLRU_A: {
-            write8AtHl(file.get(Reg.A));
-            incrementOrDecrementHl(instruction);
+            int increment = extractHlIncrement(instruction);
+            return nextPC -> {
+                write8AtHl(reg(Reg.A));
+                incrementOrDecrementHl(increment);
+                return nextPC;
+            };
         }
-            break;
         case LD_N8R_A: {
-            write8(AddressMap.REGS_START + read8AfterOpcode(), file.get(Reg.A));
+            return nextPC -> {
+                write8(AddressMap.REGS_START + read8AfterOpcode(),
+                        reg(Reg.A));
+                return nextPC;
+            };
         }
-            break;
         case LD_CR_A: {
-            write8(AddressMap.REGS_START + file.get(Reg.C), file.get(Reg.A));
+            return nextPC -> {
+                write8(AddressMap.REGS_START + reg(Reg.C),
+                        reg(Reg.A));
+                return nextPC;
+            };
         }
-            break;
         case LD_N16R_A: {
-            write8(read16AfterOpcode(), file.get(Reg.A));
+            return nextPC -> {
+                write8(read16AfterOpcode(), reg(Reg.A));
+                return nextPC;
+            };
         }
-            break;
         case LD_BCR_A: {
-            write8(reg16(Reg16.BC), file.get(Reg.A));
+            return nextPC -> {
+                write8(reg16(Reg16.BC), reg(Reg.A));
+                return nextPC;
+            };
         }
-            break;
         case LD_DER_A: {
-            write8(reg16(Reg16.DE), file.get(Reg.A));
+            return nextPC -> {
+                write8(reg16(Reg16.DE), reg(Reg.A));
+                return nextPC;
+            };
         }
-            break;
         case LD_HLR_N8: {
-            write8AtHl(read8AfterOpcode());
+            return nextPC -> {
+                write8AtHl(read8AfterOpcode());
+                return nextPC;
+            };
         }
-            break;
         case LD_N16R_SP: {
-            write16(read16AfterOpcode(), SP);
+            return nextPC -> {
+                write16(read16AfterOpcode(), SP);
+                return nextPC;
+            };
         }
-            break;
         case LD_R8_R8: {
             Reg r1 = extractReg(instruction, 3);
             Reg r2 = extractReg(instruction, 0);
-
-            if (file.get(r1) != file.get(r2))
-                file.set(r1, file.get(r2));
+            return nextPC -> {
+                setReg(r1, reg(r2));
+                return nextPC;
+            };
         }
-            break;
         case LD_SP_HL: {
-            SP = reg16(Reg16.HL);
+            return nextPC -> {
+                SP = reg16(Reg16.HL);
+                return nextPC;
+            };
         }
-            break;
         case PUSH_R16: {
-            push16(reg16(extractReg16(instruction)));
+            Reg16 r = extractReg16(instruction);
+            return nextPC -> {
+                push16(reg16(r));
+                return nextPC;
+            };
         }
-            break;
 
+        // Add
         case ADD_A_R8: {
-            setRegFlags(Reg.A,
-                    Alu.add(file.get(Reg.A),
-                            file.get(extractReg(instruction, 0)),
-                            !combineCAndBit3(instruction)));
+            Reg r = extractReg(instruction, 0);
+            boolean withCarry = extractWithCarry(instruction);
+            return nextPC -> {
+                setReg(Reg.A, add8(reg(Reg.A), reg(r), withCarry && c()));
+                return nextPC;
+            };
         }
-            break;
         case ADD_A_N8: {
-            setRegFlags(Reg.A, Alu.add(file.get(Reg.A), read8AfterOpcode(),
-                    !combineCAndBit3(instruction)));
+            boolean withCarry = extractWithCarry(instruction);
+            return nextPC -> {
+                setReg(Reg.A, add8(reg(Reg.A), read8AfterOpcode(), withCarry && c()));
+                return nextPC;
+            };
         }
-            break;
         case ADD_A_HLR: {
-            setRegFlags(Reg.A, Alu.add(file.get(Reg.A), read8AtHl(),
-                    !combineCAndBit3(instruction)));
+            boolean withCarry = extractWithCarry(instruction);
+            return nextPC -> {
+                setReg(Reg.A, add8(reg(Reg.A), read8AtHl(), withCarry && c()));
+                return nextPC;
+            };
         }
-            break;
         case INC_R8: {
-            Reg reg = extractReg(instruction, 3);
-            int valueFlags = Alu.add(file.get(reg), 1);
-            file.set(reg, Alu.unpackValue(valueFlags));
-            combineAluFlags(valueFlags, FlagSrc.ALU, FlagSrc.V0, FlagSrc.ALU,
-                    FlagSrc.CPU);
+            Reg r = extractReg(instruction, 3);
+            return nextPC -> {
+                setReg(r, inc8(reg(r)));
+                return nextPC;
+            };
         }
-            break;
         case INC_HLR: {
-            int valueFlags = Alu.add(read8AtHl(), 1);
-            write8AtHl(Alu.unpackValue(valueFlags));
-            combineAluFlags(valueFlags, FlagSrc.ALU, FlagSrc.V0, FlagSrc.ALU,
-                    FlagSrc.CPU);
+            return nextPC -> {
+                write8AtHl(inc8(read8AtHl()));
+                return nextPC;
+            };
         }
-            break;
         case INC_R16SP: {
-            Reg16 reg = extractReg16(instruction);
-
-            if (reg == Reg16.AF) {
-                SP = Bits.clip(16, SP += 1);
-            } else {
-                setReg16(reg, Alu.unpackValue(Alu.add16H(reg16(reg), 1)));
+            Reg16 r = extractReg16(instruction);
+            if (r == Reg16.AF) {
+                return nextPC -> {
+                    SP = Bits.clip(16, SP + 1);
+                    return nextPC;
+                };
             }
+            return nextPC -> {
+                setReg16(r, Alu.unpackValue(Alu.add16H(reg16(r), 1)));
+                return nextPC;
+            };
         }
-            break;
         case ADD_HL_R16SP: {
-            Reg16 reg = extractReg16(instruction);
-            int valueFlags = Alu.add16H(reg16(Reg16.HL),
-                    reg == Reg16.AF ? SP : reg16(reg));
-            setReg16SP(Reg16.HL, Alu.unpackValue(valueFlags));
-            combineAluFlags(valueFlags, FlagSrc.CPU, FlagSrc.V0, FlagSrc.ALU,
-                    FlagSrc.ALU);
+            Reg16 r = extractReg16(instruction);
+            return nextPC -> {
+                int valueFlags = Alu.add16H(reg16(Reg16.HL),
+                        r == Reg16.AF ? SP : reg16(r));
+                setReg16SP(Reg16.HL, Alu.unpackValue(valueFlags));
+                combineAluFlags(valueFlags, FlagSrc.CPU, FlagSrc.V0,
+                        FlagSrc.ALU, FlagSrc.ALU);
+                return nextPC;
+            };
         }
-            break;
         case LD_HLSP_S8: {
-            int signedValue = Bits.clip(16,
-                    Bits.signExtend8(read8AfterOpcode()));
-            int valueFlags = Alu.add16L(SP, signedValue);
-
-            if (Bits.test(instruction.encoding, 4)) {
-                setReg16(Reg16.HL, Alu.unpackValue(valueFlags));
-            } else {
-                setReg16SP(Reg16.AF, Alu.unpackValue(valueFlags));
-            }
-            combineAluFlags(valueFlags, FlagSrc.V0, FlagSrc.V0, FlagSrc.ALU,
-                    FlagSrc.ALU);
+            Reg16 r = Bits.test(instruction.encoding, 4) ? Reg16.HL
+                    : Reg16.AF;
+            return nextPC -> {
+                int valueFlags = Alu.add16L(SP, signedValue());
+                setReg16SP(r, Alu.unpackValue(valueFlags));
+                combineAluFlags(valueFlags, FlagSrc.V0, FlagSrc.V0,
+                        FlagSrc.ALU, FlagSrc.ALU);
+                return nextPC;
+            };
         }
-            break;
 
         // Subtract
         case SUB_A_R8: {
-            setRegFlags(Reg.A,
-                    Alu.sub(file.get(Reg.A),
-                            file.get(extractReg(instruction, 0)),
-                            !combineCAndBit3(instruction)));
+            Reg r = extractReg(instruction, 0);
+            boolean withCarry = extractWithCarry(instruction);
+            return nextPC -> {
+                setReg(Reg.A, sub8(reg(Reg.A), reg(r), withCarry && c()));
+                return nextPC;
+            };
         }
-            break;
         case SUB_A_N8: {
-            setRegFlags(Reg.A, Alu.sub(file.get(Reg.A), read8AfterOpcode(),
-                    !combineCAndBit3(instruction)));
+            boolean withCarry = extractWithCarry(instruction);
+            return nextPC -> {
+                setReg(Reg.A, sub8(reg(Reg.A), read8AfterOpcode(), withCarry && c()));
+                return nextPC;
+            };
         }
-            break;
         case SUB_A_HLR: {
-            setRegFlags(Reg.A, Alu.sub(file.get(Reg.A), read8AtHl(),
-                    !combineCAndBit3(instruction)));
+            boolean withCarry = extractWithCarry(instruction);
+            return nextPC -> {
+                setReg(Reg.A, sub8(reg(Reg.A), read8AtHl(), withCarry && c()));
+                return nextPC;
+            };
         }
-            break;
         case DEC_R8: {
-            Reg reg = extractReg(instruction, 3);
-            int valueFlags = Alu.sub(file.get(reg), 1);
-            file.set(reg, Alu.unpackValue(valueFlags));
-            combineAluFlags(valueFlags, FlagSrc.ALU, FlagSrc.V1, FlagSrc.ALU,
-                    FlagSrc.CPU);
+            Reg r = extractReg(instruction, 3);
+            return nextPC -> {
+                setReg(r, dec8(reg(r)));
+                return nextPC;
+            };
         }
-            break;
         case DEC_HLR: {
-            int valueFlags = Alu.sub(read8AtHl(), 1);
-            write8AtHl(Alu.unpackValue(valueFlags));
-            combineAluFlags(valueFlags, FlagSrc.ALU, FlagSrc.V1, FlagSrc.ALU,
-                    FlagSrc.CPU);
+            return nextPC -> {
+                write8AtHl(dec8(read8AtHl()));
+                return nextPC;
+            };
         }
-            break;
         case CP_A_R8: {
-            int valueFlags = Alu.sub(file.get(Reg.A),
-                    file.get(extractReg(instruction, 0)));
-            combineAluFlags(valueFlags, FlagSrc.ALU, FlagSrc.ALU, FlagSrc.ALU,
-                    FlagSrc.ALU);
+            Reg r = extractReg(instruction, 0);
+            return nextPC -> {
+                sub8(reg(Reg.A), reg(r), false);
+                return nextPC;
+            };
         }
-            break;
         case CP_A_N8: {
-            int valueFlags = Alu.sub(file.get(Reg.A), read8AfterOpcode());
-            combineAluFlags(valueFlags, FlagSrc.ALU, FlagSrc.ALU, FlagSrc.ALU,
-                    FlagSrc.ALU);
-
+            return nextPC -> {
+                sub8(reg(Reg.A), read8AfterOpcode(), false);
+                return nextPC;
+            };
         }
-            break;
         case CP_A_HLR: {
-            int valueFlags = Alu.sub(file.get(Reg.A), read8AtHl());
-            combineAluFlags(valueFlags, FlagSrc.ALU, FlagSrc.ALU, FlagSrc.ALU,
-                    FlagSrc.ALU);
+            return nextPC -> {
+                sub8(reg(Reg.A), read8AtHl(), false);
+                return nextPC;
+            };
         }
-            break;
         case DEC_R16SP: {
-            Reg16 reg = extractReg16(instruction);
-            setReg16SP(reg, Alu.unpackValue(Alu.add16H(
-                    reg == Reg16.AF ? SP : reg16(reg), Bits.clip(16, -1))));
+            Reg16 r = extractReg16(instruction);
+            return nextPC -> {
+                setReg16SP(r, Alu.unpackValue(Alu.add16H(
+                        r == Reg16.AF ? SP : reg16(r), Bits.clip(16, -1))));
+                return nextPC;
+            };
         }
-            break;
 
         // And, or, xor, complement
         case AND_A_N8: {
-            setRegFlags(Reg.A, Alu.and(file.get(Reg.A), read8AfterOpcode()));
+            return nextPC -> {
+                setReg(Reg.A, logic8(FlagOp.AND, reg(Reg.A) & read8AfterOpcode()));
+                return nextPC;
+            };
         }
-            break;
         case AND_A_R8: {
-            setRegFlags(Reg.A, Alu.and(file.get(Reg.A),
-                    file.get(extractReg(instruction, 0))));
+            Reg r = extractReg(instruction, 0);
+            return nextPC -> {
+                setReg(Reg.A, logic8(FlagOp.AND, reg(Reg.A) & reg(r)));
+                return nextPC;
+            };
         }
-            break;
         case AND_A_HLR: {
-            setRegFlags(Reg.A, Alu.and(file.get(Reg.A), read8AtHl()));
+            return nextPC -> {
+                setReg(Reg.A, logic8(FlagOp.AND, reg(Reg.A) & read8AtHl()));
+                return nextPC;
+            };
         }
-            break;
         case OR_A_R8: {
-            setRegFlags(Reg.A, Alu.or(file.get(Reg.A),
-                    file.get(extractReg(instruction, 0))));
+            Reg r = extractReg(instruction, 0);
+            return nextPC -> {
+                setReg(Reg.A, logic8(FlagOp.OR, reg(Reg.A) | reg(r)));
+                return nextPC;
+            };
         }
-            break;
         case OR_A_N8: {
-            setRegFlags(Reg.A, Alu.or(file.get(Reg.A), read8AfterOpcode()));
+            return nextPC -> {
+                setReg(Reg.A, logic8(FlagOp.OR, reg(Reg.A) | read8AfterOpcode()));
+                return nextPC;
+            };
         }
-            break;
         case OR_A_HLR: {
-            setRegFlags(Reg.A, Alu.or(file.get(Reg.A), read8AtHl()));
+            return nextPC -> {
+                setReg(Reg.A, logic8(FlagOp.OR, reg(Reg.A) | read8AtHl()));
+                return nextPC;
+            };
         }
-            break;
         case XOR_A_R8: {
-            setRegFlags(Reg.A, Alu.xor(file.get(Reg.A),
-                    file.get(extractReg(instruction, 0))));
+            Reg r = extractReg(instruction, 0);
+            return nextPC -> {
+                setReg(Reg.A, logic8(FlagOp.OR, reg(Reg.A) ^ reg(r)));
+                return nextPC;
+            };
         }
-            break;
         case XOR_A_N8: {
-            setRegFlags(Reg.A, Alu.xor(file.get(Reg.A), read8AfterOpcode()));
+            return nextPC -> {
+                setReg(Reg.A, logic8(FlagOp.OR, reg(Reg.A) ^ read8AfterOpcode()));
+                return nextPC;
+            };
         }
-            break;
         case XOR_A_HLR: {
-            setRegFlags(Reg.A, Alu.xor(file.get(Reg.A), read8AtHl()));
+            return nextPC -> {
+                setReg(Reg.A, logic8(FlagOp.OR, reg(Reg.A) ^ read8AtHl()));
+                return nextPC;
+            };
         }
-            break;
         case CPL: {
-            file.set(Reg.A, Bits.complement8(file.get(Reg.A)));
-            combineAluFlags(0, FlagSrc.CPU, FlagSrc.V1, FlagSrc.V1,
-                    FlagSrc.CPU);
+            return nextPC -> {
+                setReg(Reg.A, Bits.complement8(reg(Reg.A)));
+                combineAluFlags(0, FlagSrc.CPU, FlagSrc.V1, FlagSrc.V1,
+                        FlagSrc.CPU);
+                return nextPC;
+            };
         }
-            break;
 
         // Rotate, shift
         case ROTCA: {
-            setRegFlags(Reg.A,
-                    Alu.rotate(extractRotDir(instruction), file.get(Reg.A)));
-            combineAluFlags(0, FlagSrc.V0, FlagSrc.CPU, FlagSrc.CPU,
-                    FlagSrc.CPU);
+            RotDir d = extractRotDir(instruction);
+            return nextPC -> {
+                setRegFlags(Reg.A, Alu.rotate(d, reg(Reg.A)));
+                combineAluFlags(0, FlagSrc.V0, FlagSrc.CPU, FlagSrc.CPU,
+                        FlagSrc.CPU);
+                return nextPC;
+            };
         }
-            break;
         case ROTA: {
-            setRegFlags(Reg.A, Alu.rotate(extractRotDir(instruction),
-                    file.get(Reg.A), c()));
-            combineAluFlags(0, FlagSrc.V0, FlagSrc.CPU, FlagSrc.CPU,
-                    FlagSrc.CPU);
+            RotDir d = extractRotDir(instruction);
+            return nextPC -> {
+                setRegFlags(Reg.A, Alu.rotate(d, reg(Reg.A), c()));
+                combineAluFlags(0, FlagSrc.V0, FlagSrc.CPU, FlagSrc.CPU,
+                        FlagSrc.CPU);
+                return nextPC;
+            };
         }
-            break;
         case ROTC_R8: {
-            Reg reg = extractReg(instruction, 0);
-            setRegFlags(reg,
-                    Alu.rotate(extractRotDir(instruction), file.get(reg)));
+            Reg r = extractReg(instruction, 0);
+            RotDir d = extractRotDir(instruction);
+            return nextPC -> {
+                setRegFlags(r, Alu.rotate(d, reg(r)));
+                return nextPC;
+            };
         }
-            break;
         case ROT_R8: {
-            Reg reg = extractReg(instruction, 0);
-            setRegFlags(reg,
-                    Alu.rotate(extractRotDir(instruction), file.get(reg), c()));
+            Reg r = extractReg(instruction, 0);
+            RotDir d = extractRotDir(instruction);
+            return nextPC -> {
+                setRegFlags(r, Alu.rotate(d, reg(r), c()));
+                return nextPC;
+            };
         }
-            break;
         case ROTC_HLR: {
-            write8AtHlAndSetFlags(
-                    Alu.rotate(extractRotDir(instruction), read8AtHl()));
+            RotDir d = extractRotDir(instruction);
+            return nextPC -> {
+                write8AtHlAndSetFlags(Alu.rotate(d, read8AtHl()));
+                return nextPC;
+            };
         }
-            break;
         case ROT_HLR: {
-            write8AtHlAndSetFlags(
-                    Alu.rotate(extractRotDir(instruction), read8AtHl(), c()));
+            RotDir d = extractRotDir(instruction);
+            return nextPC -> {
+                write8AtHlAndSetFlags(Alu.rotate(d, read8AtHl(), c()));
+                return nextPC;
+            };
         }
-            break;
         case SWAP_R8: {
-            Reg reg = extractReg(instruction, 0);
-            setRegFlags(reg, Alu.swap(file.get(reg)));
+            Reg r = extractReg(instruction, 0);
+            return nextPC -> {
+                setRegFlags(r, Alu.swap(reg(r)));
+                return nextPC;
+            };
         }
-            break;
         case SWAP_HLR: {
-            write8AtHlAndSetFlags(Alu.swap(read8AtHl()));
+            return nextPC -> {
+                write8AtHlAndSetFlags(Alu.swap(read8AtHl()));
+                return nextPC;
+            };
         }
-            break;
         case SLA_R8: {
-            Reg reg = extractReg(instruction, 0);
-            setRegFlags(reg, Alu.shiftLeft(file.get(reg)));
+            Reg r = extractReg(instruction, 0);
+            return nextPC -> {
+                setRegFlags(r, Alu.shiftLeft(reg(r)));
+                return nextPC;
+            };
         }
-            break;
         case SRA_R8: {
-            Reg reg = extractReg(instruction, 0);
-            setRegFlags(reg, Alu.shiftRightA(file.get(reg)));
+            Reg r = extractReg(instruction, 0);
+            return nextPC -> {
+                setRegFlags(r, Alu.shiftRightA(reg(r)));
+                return nextPC;
+            };
         }
-            break;
         case SRL_R8: {
-            Reg reg = extractReg(instruction, 0);
-            setRegFlags(reg, Alu.shiftRightL(file.get(reg)));
+            Reg r = extractReg(instruction, 0);
+            return nextPC -> {
+                setRegFlags(r, Alu.shiftRightL(reg(r)));
+                return nextPC;
+            };
         }
-            break;
         case SLA_HLR: {
-            write8AtHlAndSetFlags(Alu.shiftLeft(read8AtHl()));
+            return nextPC -> {
+                write8AtHlAndSetFlags(Alu.shiftLeft(read8AtHl()));
+                return nextPC;
+            };
         }
-            break;
         case SRA_HLR: {
-            write8AtHlAndSetFlags(Alu.shiftRightA(read8AtHl()));
+            return nextPC -> {
+                write8AtHlAndSetFlags(Alu.shiftRightA(read8AtHl()));
+                return nextPC;
+            };
         }
-            break;
         case SRL_HLR: {
-            write8AtHlAndSetFlags(Alu.shiftRightL(read8AtHl()));
+            return nextPC -> {
+                write8AtHlAndSetFlags(Alu.shiftRightL(read8AtHl()));
+                return nextPC;
+            };
         }
-            break;
 
         // Bit test and set
         case BIT_U3_R8: {
-            combineAluFlags(
-                    Alu.testBit(file.get(extractReg(instruction, 0)),
-                            extractBitIndex(instruction)),
-                    FlagSrc.ALU, FlagSrc.ALU, FlagSrc.ALU, FlagSrc.CPU);
+            Reg r = extractReg(instruction, 0);
+            int bitIndex = extractBitIndex(instruction);
+            return nextPC -> {
+                combineAluFlags(Alu.testBit(reg(r), bitIndex),
+                        FlagSrc.ALU, FlagSrc.ALU, FlagSrc.ALU, FlagSrc.CPU);
+                return nextPC;
+            };
         }
-            break;
         case BIT_U3_HLR: {
-            combineAluFlags(
-                    Alu.testBit(read8AtHl(), extractBitIndex(instruction)),
-                    FlagSrc.ALU, FlagSrc.ALU, FlagSrc.ALU, FlagSrc.CPU);
+            int bitIndex = extractBitIndex(instruction);
+            return nextPC -> {
+                combineAluFlags(Alu.testBit(read8AtHl(), bitIndex),
+                        FlagSrc.ALU, FlagSrc.ALU, FlagSrc.ALU, FlagSrc.CPU);
+                return nextPC;
+            };
         }
-            break;
         case CHG_U3_R8: {
-            Reg reg = extractReg(instruction, 0);
-            file.set(reg, Bits.set(file.get(reg), extractBitIndex(instruction),
-                    extractOneOrZero(instruction)));
+            Reg r = extractReg(instruction, 0);
+            int bitIndex = extractBitIndex(instruction);
+            boolean newValue = extractOneOrZero(instruction);
+            return nextPC -> {
+                setReg(r, Bits.set(reg(r), bitIndex, newValue));
+                return nextPC;
+            };
         }
-            break;
         case CHG_U3_HLR: {
-            write8AtHl(Bits.set(read8AtHl(), extractBitIndex(instruction),
-                    extractOneOrZero(instruction)));
+            int bitIndex = extractBitIndex(instruction);
+            boolean newValue = extractOneOrZero(instruction);
+            return nextPC -> {
+                write8AtHl(Bits.set(read8AtHl(), bitIndex, newValue));
+                return nextPC;
+            };
         }
-            break;
 
         // Misc. ALU
         case DAA: {
-            int aluResult = Alu.bcdAdjust(file.get(Reg.A), n(), h(), c());
-            setRegFromAlu(Reg.A, aluResult);
-            combineAluFlags(aluResult, FlagSrc.ALU, FlagSrc.CPU, FlagSrc.V0,
-                    FlagSrc.ALU);
+            return nextPC -> {
+                int aluResult = Alu.bcdAdjust(reg(Reg.A), n(), h(), c());
+                setRegFromAlu(Reg.A, aluResult);
+                combineAluFlags(aluResult, FlagSrc.ALU, FlagSrc.CPU,
+                        FlagSrc.V0, FlagSrc.ALU);
+                return nextPC;
+            };
         }
-            break;
         case SCCF: {
-            FlagSrc C = combineCAndBit3(instruction) ? FlagSrc.V1 : FlagSrc.V0;
-            combineAluFlags(0, FlagSrc.CPU, FlagSrc.V0, FlagSrc.V0, C);
+            if (extractWithCarry(instruction)) {
+                return nextPC -> {
+                    combineAluFlags(0, FlagSrc.CPU, FlagSrc.V0, FlagSrc.V0,
+                            c() ? FlagSrc.V0 : FlagSrc.V1);
+                    return nextPC;
+                };
+            }
+            return nextPC -> {
+                combineAluFlags(0, FlagSrc.CPU, FlagSrc.V0, FlagSrc.V0,
+                        FlagSrc.V1);
+                return nextPC;
+            };
         }
-            break;
 
         // Jumps
         case JP_HL: {
-            nextPC = reg16(Reg16.HL);
+            return nextPC -> reg16(Reg16.HL);
         }
-            break;
         case JP_N16: {
-            nextPC = read16AfterOpcode();
+            return nextPC -> read16AfterOpcode();
         }
-            break;
         case JP_CC_N16: {
-            if (extractCondition(instruction)) {
-                conditionVerified = true;
-                nextPC = read16AfterOpcode();
-            }
+            int flag = extractConditionFlag(instruction);
+            boolean value = extractConditionValue(instruction);
+            int additionalCycles = instruction.additionalCycles;
+            return nextPC -> {
+                if (condition(flag) == value) {
+                    nextNonIdleCycle += additionalCycles;
+                    return read16AfterOpcode();
+                }
+                return nextPC;
+            };
         }
-            break;
         case JR_E8: {
-            nextPC = Bits.clip(16, nextPC + signedValue());
-            
+            return nextPC -> Bits.clip(16, nextPC + signedValue());
         }
-            break;
         case JR_CC_E8: {
-            if (extractCondition(instruction)) {
-                conditionVerified = true;
-                nextPC = Bits.clip(16, nextPC + signedValue());
-            }
+            int flag = extractConditionFlag(instruction);
+            boolean value = extractConditionValue(instruction);
+            int additionalCycles = instruction.additionalCycles;
+            return nextPC -> {
+                if (condition(flag) == value) {
+                    nextNonIdleCycle += additionalCycles;
+                    return Bits.clip(16, nextPC + signedValue());
+                }
+                return nextPC;
+            };
         }
-            break;
 
         // Calls and returns
         case CALL_N16: {
-            push16(nextPC);
-            nextPC = read16AfterOpcode();
+            return nextPC -> {
+                push16(nextPC);
+                return read16AfterOpcode();
+            };
         }
-            break;
         case CALL_CC_N16: {
-            if (extractCondition(instruction)) {
-                push16(nextPC);
-                nextPC = read16AfterOpcode();
-                conditionVerified = true;
-            }
+            int flag = extractConditionFlag(instruction);
+            boolean value = extractConditionValue(instruction);
+            int additionalCycles = instruction.additionalCycles;
+            return nextPC -> {
+                if (condition(flag) == value) {
+                    nextNonIdleCycle += additionalCycles;
+                    push16(nextPC);
+                    return read16AfterOpcode();
+                }
+                return nextPC;
+            };
         }
-            break;
         case RST_U3: {
-            push16(nextPC);
-            nextPC = AddressMap.RESETS[extractBitIndex(instruction)];
+            int address = AddressMap.RESETS[extractBitIndex(instruction)];
+            return nextPC -> {
+                push16(nextPC);
+                return address;
+            };
         }
-            break;
         case RET: {
-            nextPC = pop16();
+            return nextPC -> pop16();
         }
-            break;
         case RET_CC: {
-            if (extractCondition(instruction)) {
-                nextPC = pop16();
-                conditionVerified = true;
-            }
+            int flag = extractConditionFlag(instruction);
+            boolean value = extractConditionValue(instruction);
+            int additionalCycles = instruction.additionalCycles;
+            return nextPC -> {
+                if (condition(flag) == value) {
+                    nextNonIdleCycle += additionalCycles;
+                    return pop16();
+                }
+                return nextPC;
+            };
         }
-            break;
 
         // Interrupts
         case EDI: {
-            IME = Bits.test(instruction.encoding, 3);
+            boolean enabled = Bits.test(instruction.encoding, 3);
+            return nextPC -> {
+                IME = enabled;
+                updateInterrupts();
+                return nextPC;
+            };
         }
-            break;
         case RETI: {
-            IME = true;
-            nextPC = pop16();
+            return nextPC -> {
+                IME = true;
+                updateInterrupts();
+                return pop16();
+            };
         }
-            break;
 
         // Misc control
         case HALT: {
-            nextNonIdleCycle = Long.MAX_VALUE;
+            return nextPC -> {
+                nextNonIdleCycle = Long.MAX_VALUE;
+                return nextPC;
+            };
         }
-            break;
-        case STOP:
-            throw new Error("STOP is not implemented");
+        case STOP: {
+            return nextPC -> {
+                throw new Error("STOP is not implemented");
+            };
+        }
+        default:
+            throw new Error("Unknown family " + instruction.family);
         }
-
-        PC = nextPC;
-        update(instruction, conditionVerified);
     }
 
     /*
@@ -663,14 +1472,21 @@ public final class Cpu implements Component, Clocked {
      */
     @Override
     public void attachTo(Bus bus) {
-        Component.super.attachTo(bus);
+        bus.attach(this, AddressMap.HIGH_RAM_START, AddressMap.HIGH_RAM_END);
+        bus.attach(this, AddressMap.REG_IF, AddressMap.REG_IF + 1);
+        bus.attach(this, AddressMap.REG_IE, AddressMap.REG_IE + 1);
+        highRam.mapTo(bus, AddressMap.HIGH_RAM_START, AddressMap.HIGH_RAM_END,
+                true);
         this.bus = bus;
     }
 
     private int read8(int address) {
-        Preconditions.checkBits16(address);
+        Preconditions.checkBits16IfDebug(address);
+        if (address >= AddressMap.REG_DIV && address <= AddressMap.REG_TAC) {
+            loopSideEffects = true;
+        }
         int value = bus.read(address);
-        Preconditions.checkBits8(value);
+        Preconditions.checkBits8IfDebug(value);
         return value;
     };
 
@@ -683,7 +1499,7 @@ public final class Cpu implements Component, Clocked {
     };
 
     private int read16(int address) {
-        Preconditions.checkBits16(address);
+        Preconditions.checkBits16IfDebug(address);
 
         int low = read8(address);
         int high = read8(address + 1);
@@ -696,6 +1512,19 @@ public final class Cpu implements Component, Clocked {
     };
 
     private void write8(int address, int v) {
+        loopSideEffects = true;
+        if (address >= CODE_RAM_START) {
+            invalidateBlocks(address);
+        } else if (address < AddressMap.VIDEO_RAM_START) {
+            // A write to the bank controller may switch the bank of the code
+            // that follows : the block being executed must stop there
+            blockInvalidated = true;
+        }
+        if (address >= AddressMap.REGS_START
+                && (address < AddressMap.HIGH_RAM_START
+                        || address == AddressMap.REG_IE)) {
+            registerWritten = true;
+        }
         bus.write(address, v);
     };
 
@@ -712,7 +1541,7 @@ public final class Cpu implements Component, Clocked {
     };
 
     private void push16(int v) {
-        Preconditions.checkBits16(v);
+        Preconditions.checkBits16IfDebug(v);
         SP = Bits.clip(Short.SIZE, SP - 2);
         write16(SP, v);
     };
@@ -773,40 +1602,48 @@ public final class Cpu implements Component, Clocked {
         return 1;
     };
 
-    private void incrementOrDecrementHl(Opcode opcode) {
-        int newValue = reg16(Reg16.HL) + extractHlIncrement(opcode);
+    private void incrementOrDecrementHl(int increment) {
+        int newValue = reg16(Reg16.HL) + increment;
         setReg16(Reg16.HL, Bits.clip(Short.SIZE, newValue));
     }
 
     /*
      * --------------------- Registers Managements -------------------------
      */
-    private int reg16(Reg16 r) {
-        Reg r1 = Reg.values()[r.index() * 2];
-        Reg r2 = Reg.values()[r.index() * 2 + 1];
-
-        return Bits.make16(file.get(r1), file.get(r2));
+    // The registers are stored in an array of ints indexed by their ordinal,
+    // the pairs of 8 bits registers forming a 16 bits register being
+    // consecutive (A and F, B and C...), so that no access allocates anything
+    private int reg(Reg r) {
+        return regs[r.ordinal()];
     }
 
-    private void setReg16(Reg16 r, int newV) {
-        Preconditions.checkBits16(newV);
+    private void setReg(Reg r, int newV) {
+        regs[r.ordinal()] = Preconditions.checkBits8IfDebug(newV);
+    }
 
-        if (r == Reg16.AF && Bits.clip(4, newV) > 0) {
-            newV = (newV >>> 4) << 4;
+    private int reg16(Reg16 r) {
+        if (r == Reg16.AF) {
+            materializeFlags();
         }
+        int index = r.ordinal() * 2;
+        return (regs[index] << Byte.SIZE) | regs[index + 1];
+    }
 
-        Reg r1 = Reg.values()[r.index() * 2];
-        Reg r2 = Reg.values()[r.index() * 2 + 1];
+    private void setReg16(Reg16 r, int newV) {
+        Preconditions.checkBits16IfDebug(newV);
 
-        int highV = Bits.extract(newV, Byte.SIZE, Byte.SIZE);
-        int lowV = Bits.clip(Byte.SIZE, newV);
+        if (r == Reg16.AF) {
+            newV &= 0xFFF0;
+            flagOp = FlagOp.NONE;
+        }
 
-        file.set(r1, highV);
-        file.set(r2, lowV);
+        int index = r.ordinal() * 2;
+        regs[index] = newV >>> Byte.SIZE;
+        regs[index + 1] = newV & 0xFF;
     }
 
     private void setReg16SP(Reg16 r, int newV) {
-        Preconditions.checkBits16(newV);
+        Preconditions.checkBits16IfDebug(newV);
         if (r == Reg16.AF) {
             SP = Bits.clip(16, newV);
         } else {
@@ -815,13 +1652,6 @@ public final class Cpu implements Component, Clocked {
 
     }
 
-    private void update(Opcode opcode, boolean conditionVerified) {
-        if (conditionVerified) {
-            nextNonIdleCycle += opcode.additionalCycles;
-        }
-        nextNonIdleCycle += opcode.cycles;
-    }
-
     private static Opcode[] buildOpcodeTable(Opcode.Kind kind) {
         Opcode[] allOpcodes = Opcode.values();
 
@@ -836,6 +1666,18 @@ public final class Cpu implements Component, Clocked {
         return opcodesOfAKind;
     }
 
+    private OpcodeHandler[] buildHandlerTable(Opcode[] opcodes) {
+        OpcodeHandler[] handlers = new OpcodeHandler[opcodes.length];
+
+        for (int i = 0; i < opcodes.length; ++i) {
+            if (opcodes[i] != null) {
+                handlers[i] = decode(opcodes[i]);
+            }
+        }
+
+        return handlers;
+    }
+
     /**
      * This method is used solely for the purpose of testing
      * 
@@ -848,11 +1690,8 @@ public final class Cpu implements Component, Clocked {
         reg[0] = PC;
         reg[1] = SP;
 
-        Reg[] regTemp = Reg.values();
-
-        for (int i = 2; i < 10; ++i) {
-            reg[i] = file.get(regTemp[i - 2]);
-        }
+        materializeFlags();
+        System.arraycopy(regs, 0, reg, 2, regs.length);
 
         return reg;
     }
@@ -868,31 +1707,47 @@ public final class Cpu implements Component, Clocked {
      */
     public void requestInterrupt(Interrupt i) {
         IF = Bits.set(IF, i.index(), true);
+        updateInterrupts();
+    }
+
+    /**
+     * Tells the Cpu that the LCD screen has just finished a frame, by entering
+     * its vertical blank : the frame of the histogram, if there is one, ends
+     * before the next instruction
+     */
+    public void endFrame() {
+        ++endedFrames;
+    }
+
+    // Must be called every time IF, IE or IME changes : the interruptions that
+    // are both requested and enabled are kept, as well as the fact that one of
+    // them has to be handled before the next instruction
+    private void updateInterrupts() {
+        pendingInterrupts = IF & IE;
+        interruptReady = IME && pendingInterrupts != 0;
     }
 
     private boolean checkInterruptionIEIF() {
-        return (IF & IE) > 0;
+        return pendingInterrupts != 0;
     }
 
+    // The pending interruption of highest priority is the one of lowest index
     private int checkInterruptionIndex() {
-        int nb = IF & IE;
-        for (int i = 0; i < Byte.SIZE; i++) {
-            if (Bits.test(nb, i)) {
-                return i;
-            }
+        if (pendingInterrupts == 0) {
+            throw new Error("no common bit equal to 1");
         }
-        throw new Error("no common bit equal to 1");
-
+        return Integer.numberOfTrailingZeros(pendingInterrupts);
     }
 
     // ---------------- Flags ToolBox---------------------
 
     private void setRegFromAlu(Reg r, int vf) {
-        file.set(r, Alu.unpackValue(vf));
+        setReg(r, Alu.unpackValue(vf));
     }
 
     private void setFlags(int valueFlags) {
-        file.set(Reg.F, Alu.unpackFlags(valueFlags));
+        setReg(Reg.F, Alu.unpackFlags(valueFlags));
+        flagOp = FlagOp.NONE;
     }
 
     private void setRegFlags(Reg r, int vf) {
@@ -907,8 +1762,9 @@ public final class Cpu implements Component, Clocked {
 
     private void combineAluFlags(int vf, FlagSrc z, FlagSrc n, FlagSrc h,
             FlagSrc c) {
+        materializeFlags();
         int aluFlags = Alu.unpackFlags(vf);
-        int cpuFlags = file.get(Reg.F);
+        int cpuFlags = reg(Reg.F);
 
         int maskZ = flagMask(Bits.test(cpuFlags, 7), Bits.test(aluFlags, 7), z,
                 7);
@@ -919,12 +1775,67 @@ public final class Cpu implements Component, Clocked {
         int maskC = flagMask(Bits.test(cpuFlags, 4), Bits.test(aluFlags, 4), c,
                 4);
 
-        file.set(Reg.F, maskZ | maskN | maskH | maskC);
+        setReg(Reg.F, maskZ | maskN | maskH | maskC);
+    }
+
+    // The most frequent 8 bits operations (additions, subtractions,
+    // comparisons, logical operations, increments and decrements) only record
+    // their operands and their (unclipped) result : their flags are computed
+    // when they are read, which rarely happens before the next operation
+    // overwrites them
+    private int add8(int l, int r, boolean c0) {
+        return recordFlags(FlagOp.ADD, l, r, l + r + (c0 ? 1 : 0));
+    }
+
+    private int sub8(int l, int r, boolean b0) {
+        return recordFlags(FlagOp.SUB, l, r, l - r - (b0 ? 1 : 0));
+    }
+
+    private int logic8(FlagOp op, int result) {
+        return recordFlags(op, 0, 0, result);
+    }
+
+    private int inc8(int v) {
+        flagCarry = c();
+        return recordFlags(FlagOp.INC, v, 1, v + 1);
+    }
+
+    private int dec8(int v) {
+        flagCarry = c();
+        return recordFlags(FlagOp.DEC, v, 1, v - 1);
+    }
+
+    private int recordFlags(FlagOp op, int l, int r, int result) {
+        flagOp = op;
+        flagL = l;
+        flagR = r;
+        flagResult = result;
+        return result & 0xFF;
+    }
+
+    private void materializeFlags() {
+        if (flagOp != FlagOp.NONE) {
+            boolean n = flagOp == FlagOp.SUB || flagOp == FlagOp.DEC;
+            boolean h;
+            switch (flagOp) {
+            case AND:
+                h = true;
+                break;
+            case OR:
+                h = false;
+                break;
+            default:
+                // the carry out of the 4 lsb of an addition or a subtraction
+                h = Bits.test(flagL ^ flagR ^ flagResult, 4);
+            }
+            regs[Reg.F.ordinal()] = Alu.maskZNHC(z(), n, h, c());
+            flagOp = FlagOp.NONE;
+        }
     }
 
     private int flagMask(boolean cpuFlag, boolean aluFlag, FlagSrc i,
             int index) {
-        Preconditions.checkArgument(index > 3 && index < Byte.SIZE);
+        Preconditions.checkArgumentIfDebug(index > 3 && index < Byte.SIZE);
 
         int bit = 3;
 
@@ -966,17 +1877,8 @@ public final class Cpu implements Component, Clocked {
         return Bits.test(instruction.encoding, 6);
     }
 
-    private boolean combineCAndBit3(Opcode instruction) {
-        return !(Bits.test(instruction.encoding, 3) && c());
-    }
-
-    /**
-     * Tests whether the flag Z is set to 1 or not
-     * 
-     * @return true if it is, false if not
-     */
-    private boolean z() {
-        return Bits.test(file.get(Reg.F), 7);
+    private boolean extractWithCarry(Opcode instruction) {
+        return Bits.test(instruction.encoding, 3);
     }
 
     /**
@@ -985,7 +1887,8 @@ public final class Cpu implements Component, Clocked {
      * @return true if it is, false if not
      */
     private boolean n() {
-        return Bits.test(file.get(Reg.F), 6);
+        materializeFlags();
+        return Bits.test(reg(Reg.F), 6);
     }
 
     /**
@@ -994,7 +1897,8 @@ public final class Cpu implements Component, Clocked {
      * @return true if it is, false if not
      */
     private boolean h() {
-        return Bits.test(file.get(Reg.F), 5);
+        materializeFlags();
+        return Bits.test(reg(Reg.F), 5);
     }
 
     /**
@@ -1003,26 +1907,45 @@ public final class Cpu implements Component, Clocked {
      * @return true if it is, false if not
      */
     private boolean c() {
-        return Bits.test(file.get(Reg.F), 4);
+        switch (flagOp) {
+        case NONE:
+            return Bits.test(reg(Reg.F), 4);
+        case ADD:
+        case SUB:
+            // the carry (or the borrow) out of the 8 bits of the result
+            return Bits.test(flagResult, 8);
+        case INC:
+        case DEC:
+            return flagCarry;
+        default:
+            return false;
+        }
     }
 
-    private boolean extractCondition(Opcode opcode) {
-        switch (Bits.extract(opcode.encoding, 3, 2)) {
-        case 0b00:
-            return !z();
-        case 0b01:
-            return z();
-        case 0b10:
-            return !c();
-        case 0b11:
-            return c();
+    /**
+     * Tests whether the flag Z is set to 1 or not
+     * 
+     * @return true if it is, false if not
+     */
+    private boolean z() {
+        return flagOp == FlagOp.NONE ? Bits.test(reg(Reg.F), 7)
+                : (flagResult & 0xFF) == 0;
+    }
 
-        default:
-            throw new Error("This is not a condition");
+    private boolean condition(int flag) {
+        return flag == 7 ? z() : c();
+    }
 
-        }
+    // The condition of a conditional jump, call or return is verified if the
+    // flag Z (for NZ and Z) or C (for NC and C) has the given value
+    private int extractConditionFlag(Opcode opcode) {
+        return Bits.test(opcode.encoding, 4) ? 4 : 7;
     }
-    
+
+    private boolean extractConditionValue(Opcode opcode) {
+        return Bits.test(opcode.encoding, 3);
+    }
+
     private int signedValue() {
         return Bits.clip(16, Bits.signExtend8(read8AfterOpcode()));
     }
@@ -1064,24 +1987,24 @@ public final class Cpu implements Component, Clocked {
     //
     // public void _testSetRegisters(int A, int B, int C, int D, int E, int F,
     // int H, int L) {
-    // file.set(Reg.A, A);
-    // file.set(Reg.B, B);
-    // file.set(Reg.C, C);
-    // file.set(Reg.D, D);
-    // file.set(Reg.E, E);
-    // file.set(Reg.F, F);
-    // file.set(Reg.H, H);
-    // file.set(Reg.L, L);
+    // setReg(Reg.A, A);
+    // setReg(Reg.B, B);
+    // setReg(Reg.C, C);
+    // setReg(Reg.D, D);
+    // setReg(Reg.E, E);
+    // setReg(Reg.F, F);
+    // setReg(Reg.H, H);
+    // setReg(Reg.L, L);
     // }
     //
     // public void initializeRegisters() {
-    // file.set(Reg.A, 0xF0);
-    // file.set(Reg.F, 0xF1);
-    // file.set(Reg.B, 0xF2);
-    // file.set(Reg.C, 0xF4);
-    // file.set(Reg.D, 0xF3);
-    // file.set(Reg.E, 0xF7);
-    // file.set(Reg.H, 0xFA);
-    // file.set(Reg.L, 0xF5);
+    // setReg(Reg.A, 0xF0);
+    // setReg(Reg.F, 0xF1);
+    // setReg(Reg.B, 0xF2);
+    // setReg(Reg.C, 0xF4);
+    // setReg(Reg.D, 0xF3);
+    // setReg(Reg.E, 0xF7);
+    // setReg(Reg.H, 0xFA);
+    // setReg(Reg.L, 0xF5);
     // }
 }
@@ -0,0 +1,182 @@
+package ch.epfl.gameboj.component.cpu;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * A histogram of the instructions executed by the Cpu, that counts the
+ * executions of every opcode, and thus of every family and of every kind
+ * (direct or prefixed) of opcodes. The counts are kept for the whole
+ * execution and for the last complete frame, a frame ending when the LCD
+ * screen enters its vertical blank
+ *
+ * @author Sophie du Couédic (260007)
+ * @author Arnaud Robert (287964)
+ */
+public final class OpcodeHistogram {
+
+    private static final Opcode[] OPCODES = Opcode.values();
+
+    private final long[] totalCounts = new long[OPCODES.length];
+    private final long[] frameCounts = new long[OPCODES.length];
+    private final long[] lastFrameCounts = new long[OPCODES.length];
+    private long frames;
+
+    /**
+     * Records one execution of the given opcode, in the current frame
+     *
+     * @param opcode
+     *            an Opcode : the executed opcode
+     */
+    void record(Opcode opcode) {
+        ++frameCounts[opcode.ordinal()];
+    }
+
+    /**
+     * Ends the current frame : its counts become the ones of the last frame
+     * and are added to the total counts
+     */
+    public void endFrame() {
+        for (int i = 0; i < OPCODES.length; ++i) {
+            totalCounts[i] += frameCounts[i];
+        }
+        System.arraycopy(frameCounts, 0, lastFrameCounts, 0, OPCODES.length);
+        Arrays.fill(frameCounts, 0);
+        ++frames;
+    }
+
+    /**
+     * Returns the number of frames that have been ended
+     *
+     * @return a long : the number of frames
+     */
+    public long frames() {
+        return frames;
+    }
+
+    /**
+     * Returns the number of executions of the given opcode, in all the ended
+     * frames
+     *
+     * @param opcode
+     *            an Opcode : the opcode
+     * @return a long : the number of executions of the opcode
+     */
+    public long count(Opcode opcode) {
+        return totalCounts[opcode.ordinal()];
+    }
+
+    /**
+     * Returns the number of executions of the opcodes of the given family, in
+     * all the ended frames
+     *
+     * @param family
+     *            an Opcode.Family : the family
+     * @return a long : the number of executions of the family
+     */
+    public long count(Opcode.Family family) {
+        return sum(totalCounts, o -> o.family == family);
+    }
+
+    /**
+     * Returns the number of executions of the opcodes of the given kind, in all
+     * the ended frames
+     *
+     * @param kind
+     *            an Opcode.Kind : the kind
+     * @return a long : the number of executions of the kind
+     */
+    public long count(Opcode.Kind kind) {
+        return sum(totalCounts, o -> o.kind == kind);
+    }
+
+    /**
+     * Returns the number of executions of the given opcode in the last ended
+     * frame
+     *
+     * @param opcode
+     *            an Opcode : the opcode
+     * @return a long : the number of executions of the opcode
+     */
+    public long lastFrameCount(Opcode opcode) {
+        return lastFrameCounts[opcode.ordinal()];
+    }
+
+    /**
+     * Returns the number of executions of the opcodes of the given family in
+     * the last ended frame
+     *
+     * @param family
+     *            an Opcode.Family : the family
+     * @return a long : the number of executions of the family
+     */
+    public long lastFrameCount(Opcode.Family family) {
+        return sum(lastFrameCounts, o -> o.family == family);
+    }
+
+    /**
+     * Returns the number of executions of the opcodes of the given kind in the
+     * last ended frame
+     *
+     * @param kind
+     *            an Opcode.Kind : the kind
+     * @return a long : the number of executions of the kind
+     */
+    public long lastFrameCount(Opcode.Kind kind) {
+        return sum(lastFrameCounts, o -> o.kind == kind);
+    }
+
+    /**
+     * Writes the histogram in the given file, as comma separated values
+     * (type, name, last frame, total) : first the kinds, then the families and
+     * then the opcodes, each of them from the most executed one
+     *
+     * @param file
+     *            a File : the file to write
+     * @throws IOException
+     *             if the file can not be written
+     */
+    public void writeTo(File file) throws IOException {
+        try (PrintWriter w = new PrintWriter(file, "UTF-8")) {
+            w.println("type,name,lastFrame,total");
+            for (Opcode.Kind kind : sorted(Opcode.Kind.values(),
+                    this::count)) {
+                w.printf("kind,%s,%d,%d%n", kind, lastFrameCount(kind),
+                        count(kind));
+            }
+            for (Opcode.Family family : sorted(Opcode.Family.values(),
+                    this::count)) {
+                w.printf("family,%s,%d,%d%n", family,
+                        lastFrameCount(family), count(family));
+            }
+            for (Opcode opcode : sorted(OPCODES, this::count)) {
+                w.printf("opcode,%s,%d,%d%n", opcode, lastFrameCount(opcode),
+                        count(opcode));
+            }
+            if (w.checkError()) {
+                throw new IOException("error while writing " + file);
+            }
+        }
+    }
+
+    private static long sum(long[] counts, Predicate<Opcode> selected) {
+        long sum = 0;
+        for (Opcode o : OPCODES) {
+            if (selected.test(o)) {
+                sum += counts[o.ordinal()];
+            }
+        }
+        return sum;
+    }
+
+    private static <T> T[] sorted(T[] values, ToLongFunction<T> counter) {
+        T[] result = values.clone();
+        Arrays.sort(result, Comparator.<T> comparingLong(counter).reversed());
+        return result;
+    }
+}
@@ -0,0 +1,193 @@
+package ch.epfl.gameboj.component.cpu;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import ch.epfl.gameboj.Preconditions;
+
+/**
+ * A profiler of the code executed by the Cpu, that counts the executions and
+ * the cycles of the instructions at every address. The code of the cartridge
+ * is told apart by its rom bank, the rest of the code (boot rom, ram) by its
+ * address only
+ *
+ * @author Sophie du Couédic (260007)
+ * @author Arnaud Robert (287964)
+ */
+public final class Profiler {
+
+    private static final int MAX_ROM_BANKS = 0x80;
+    private static final int ADDRESS_SPACE_SIZE = 1 << Short.SIZE;
+    private static final int NO_BANK = -1;
+
+    private final long[][] romCounts = new long[MAX_ROM_BANKS][];
+    private final long[][] romCycles = new long[MAX_ROM_BANKS][];
+    private final long[] otherCounts = new long[ADDRESS_SPACE_SIZE];
+    private final long[] otherCycles = new long[ADDRESS_SPACE_SIZE];
+
+    /**
+     * The profile of the instruction at one address
+     */
+    public static final class Entry {
+        /**
+         * an int : the rom bank of the instruction, or -1 if it is not in
+         * the rom of the cartridge
+         */
+        public final int bank;
+        /**
+         * an int : the address of the instruction
+         */
+        public final int address;
+        /**
+         * a long : the number of times the instruction has been executed
+         */
+        public final long count;
+        /**
+         * a long : the number of cycles spent in the instruction
+         */
+        public final long cycles;
+
+        private Entry(int bank, int address, long count, long cycles) {
+            this.bank = bank;
+            this.address = address;
+            this.count = count;
+            this.cycles = cycles;
+        }
+
+        @Override
+        public String toString() {
+            return (bank == NO_BANK ? "--" : String.format("%02X", bank))
+                    + String.format(":%04X", address);
+        }
+    }
+
+    /**
+     * Records one execution of an instruction
+     *
+     * @param romIndex
+     *            an int : the index of the instruction in the rom of the
+     *            cartridge, or a negative value if it is not in this rom
+     * @param address
+     *            an int : the address of the instruction
+     * @param cycles
+     *            a long : the cycles spent in the instruction
+     */
+    void record(int romIndex, int address, long cycles) {
+        if (romIndex >= 0) {
+            int bank = romIndex / Cpu.ROM_BANK_SIZE;
+            if (romCounts[bank] == null) {
+                romCounts[bank] = new long[Cpu.ROM_BANK_SIZE];
+                romCycles[bank] = new long[Cpu.ROM_BANK_SIZE];
+            }
+            ++romCounts[bank][romIndex % Cpu.ROM_BANK_SIZE];
+            romCycles[bank][romIndex % Cpu.ROM_BANK_SIZE] += cycles;
+        } else {
+            ++otherCounts[address];
+            otherCycles[address] += cycles;
+        }
+    }
+
+    /**
+     * Forgets everything that has been recorded
+     */
+    public void reset() {
+        for (int bank = 0; bank < MAX_ROM_BANKS; ++bank) {
+            romCounts[bank] = null;
+            romCycles[bank] = null;
+        }
+        Arrays.fill(otherCounts, 0);
+        Arrays.fill(otherCycles, 0);
+    }
+
+    /**
+     * Returns the profiles of all the instructions that have been executed,
+     * by bank and then by address
+     *
+     * @return a List of Entry : the profiles of the executed instructions
+     */
+    public List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>();
+        for (int address = 0; address < ADDRESS_SPACE_SIZE; ++address) {
+            if (otherCounts[address] != 0) {
+                entries.add(new Entry(NO_BANK, address, otherCounts[address],
+                        otherCycles[address]));
+            }
+        }
+        for (int bank = 0; bank < MAX_ROM_BANKS; ++bank) {
+            if (romCounts[bank] == null) {
+                continue;
+            }
+            int bankAddress = bank == 0 ? 0 : Cpu.ROM_BANK_SIZE;
+            for (int i = 0; i < Cpu.ROM_BANK_SIZE; ++i) {
+                if (romCounts[bank][i] != 0) {
+                    entries.add(new Entry(bank, bankAddress + i,
+                            romCounts[bank][i], romCycles[bank][i]));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the report of the hot spots : the given number of instructions
+     * in which the most cycles have been spent, from the hottest one, with
+     * their share of all the recorded cycles
+     *
+     * @param maxLines
+     *            an int : the maximal number of instructions in the report
+     * @return a String : the report, one instruction per line
+     * @throws IllegalArgumentException
+     *             if maxLines is negative
+     */
+    public String report(int maxLines) {
+        Preconditions.checkArgument(maxLines >= 0);
+
+        List<Entry> entries = entries();
+        long totalCycles = 0;
+        for (Entry e : entries) {
+            totalCycles += e.cycles;
+        }
+        entries.sort(Comparator.comparingLong((Entry e) -> e.cycles)
+                .reversed());
+
+        StringBuilder b = new StringBuilder(String.format(
+                "%-7s  %12s  %14s  %6s%n", "bank:pc", "count", "cycles", "%"));
+        for (Entry e : entries.subList(0, Math.min(maxLines, entries.size()))) {
+            double share = totalCycles == 0 ? 0
+                    : 100.0 * e.cycles / totalCycles;
+            b.append(String.format("%-7s  %12d  %14d  %6.2f%n", e, e.count,
+                    e.cycles, share));
+        }
+        return b.toString();
+    }
+
+    /**
+     * Writes the profiles of all the executed instructions in the given file,
+     * as comma separated values (bank, address, count, cycles) ordered by bank
+     * and address. The bank of the code that is not in the rom of the
+     * cartridge is empty
+     *
+     * @param file
+     *            a File : the file to write
+     * @throws IOException
+     *             if the file can not be written
+     */
+    public void writeCsv(File file) throws IOException {
+        try (PrintWriter w = new PrintWriter(file, "UTF-8")) {
+            w.println("bank,address,count,cycles");
+            for (Entry e : entries()) {
+                w.printf("%s,%04X,%d,%d%n",
+                        e.bank == NO_BANK ? "" : String.format("%02X", e.bank),
+                        e.address, e.count, e.cycles);
+            }
+            if (w.checkError()) {
+                throw new IOException("error while writing " + file);
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package ch.epfl.gameboj.component.cpu;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import ch.epfl.gameboj.Preconditions;
+
+/**
+ * A trace of the last instructions executed by the Cpu, kept in a ring buffer
+ * of primitive arrays allocated once : recording an instruction allocates
+ * nothing. For each instruction are kept its cycle, its address, its bytes
+ * and the registers before its execution. The trace can be disassembled on
+ * demand, is attached to the exceptions thrown by the instructions, and is
+ * given to a handler when the Cpu reaches a breakpoint
+ *
+ * @author Sophie du Couédic (260007)
+ * @author Arnaud Robert (287964)
+ */
+public final class TraceBuffer {
+
+    private static final int ADDRESS_SPACE_SIZE = 1 << Short.SIZE;
+    private static final int INTERRUPTION = -1;
+
+    private final long[] cycles;
+    private final int[] pcs;
+    private final int[] bytes;
+    private final int[] afbcs;
+    private final int[] dehls;
+    private final int[] sps;
+    private int next;
+    private int size;
+
+    private final boolean[] breakpoints = new boolean[ADDRESS_SPACE_SIZE];
+    private boolean hasBreakpoints;
+    private Consumer<TraceBuffer> breakpointHandler = t -> {
+    };
+
+    /**
+     * Constructs a trace that keeps the given number of instructions
+     *
+     * @param capacity
+     *            an int : the number of instructions that are kept
+     * @throws IllegalArgumentException
+     *             if capacity is not strictly positive
+     */
+    public TraceBuffer(int capacity) {
+        Preconditions.checkArgument(capacity > 0);
+        cycles = new long[capacity];
+        pcs = new int[capacity];
+        bytes = new int[capacity];
+        afbcs = new int[capacity];
+        dehls = new int[capacity];
+        sps = new int[capacity];
+    }
+
+    /**
+     * Records an instruction, forgetting the oldest one if the trace is full
+     *
+     * @param cycle
+     *            a long : the cycle at which the instruction starts
+     * @param pc
+     *            an int : the address of the instruction
+     * @param instructionBytes
+     *            an int : the three bytes at this address, the first one in
+     *            the lowest bits, or -1 for the handling of an interruption
+     * @param afbc
+     *            an int : registers AF and BC, AF in the highest bits
+     * @param dehl
+     *            an int : registers DE and HL, DE in the highest bits
+     * @param sp
+     *            an int : register SP
+     */
+    void record(long cycle, int pc, int instructionBytes, int afbc, int dehl,
+            int sp) {
+        cycles[next] = cycle;
+        pcs[next] = pc;
+        bytes[next] = instructionBytes;
+        afbcs[next] = afbc;
+        dehls[next] = dehl;
+        sps[next] = sp;
+        next = (next + 1) % cycles.length;
+        size = Math.min(size + 1, cycles.length);
+    }
+
+    /**
+     * Tells if there is a breakpoint at the given address
+     *
+     * @param address
+     *            an int : the address
+     * @return a boolean : true if there is a breakpoint at the address
+     */
+    boolean isBreakpoint(int address) {
+        return hasBreakpoints && breakpoints[address];
+    }
+
+    /**
+     * Calls the handler of the breakpoints with the trace
+     */
+    void breakpointReached() {
+        breakpointHandler.accept(this);
+    }
+
+    /**
+     * Adds a breakpoint at the given address : the handler of the breakpoints
+     * is called before the execution of every instruction at this address,
+     * once it has been recorded
+     *
+     * @param address
+     *            an int : the address
+     * @throws IllegalArgumentException
+     *             if address is not a 16-bits value
+     */
+    public void addBreakpoint(int address) {
+        breakpoints[Preconditions.checkBits16(address)] = true;
+        hasBreakpoints = true;
+    }
+
+    /**
+     * Removes the breakpoint at the given address, if there is one
+     *
+     * @param address
+     *            an int : the address
+     * @throws IllegalArgumentException
+     *             if address is not a 16-bits value
+     */
+    public void removeBreakpoint(int address) {
+        breakpoints[Preconditions.checkBits16(address)] = false;
+    }
+
+    /**
+     * Sets the handler called when a breakpoint is reached, that does nothing
+     * by default
+     *
+     * @param handler
+     *            a Consumer of TraceBuffer : the handler, that receives the
+     *            trace
+     * @throws NullPointerException
+     *             if handler is null
+     */
+    public void setBreakpointHandler(Consumer<TraceBuffer> handler) {
+        breakpointHandler = Objects.requireNonNull(handler);
+    }
+
+    /**
+     * Returns the number of instructions currently kept in the trace
+     *
+     * @return an int : the number of instructions in the trace
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Forgets all the recorded instructions
+     */
+    public void clear() {
+        next = 0;
+        size = 0;
+    }
+
+    /**
+     * Disassembles the trace, from the oldest instruction to the most recent
+     * one, one instruction per line : its cycle, its address, its bytes, its
+     * opcode with its immediate value, and the registers before its execution
+     *
+     * @return a String : the disassembly of the trace
+     */
+    public String disassemble() {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < size; ++i) {
+            int e = (next - size + i + cycles.length) % cycles.length;
+            b.append(String.format("%10d  %04X  ", cycles[e], pcs[e]));
+            if (bytes[e] == INTERRUPTION) {
+                b.append(String.format("%-8s  %-16s", "", "INTERRUPTION"));
+            } else {
+                appendInstruction(b, bytes[e]);
+            }
+            b.append(String.format(
+                    "  AF=%04X BC=%04X DE=%04X HL=%04X SP=%04X%n",
+                    afbcs[e] >>> Short.SIZE, afbcs[e] & 0xFFFF,
+                    dehls[e] >>> Short.SIZE, dehls[e] & 0xFFFF, sps[e]));
+        }
+        return b.toString();
+    }
+
+    // The opcode of the given bytes is found in the table of its kind, and its
+    // immediate value is made of its bytes that follow the opcode itself
+    private static void appendInstruction(StringBuilder b,
+            int instructionBytes) {
+        int b0 = instructionBytes & 0xFF;
+        int b1 = (instructionBytes >>> Byte.SIZE) & 0xFF;
+        int b2 = (instructionBytes >>> (2 * Byte.SIZE)) & 0xFF;
+
+        Opcode opcode = b0 == Cpu.PREFIX_IDENTIFICATOR
+                ? Cpu.opcode(Opcode.Kind.PREFIXED, b1)
+                : Cpu.opcode(Opcode.Kind.DIRECT, b0);
+        int length = opcode == null ? 1 : opcode.totalBytes;
+        int[] all = { b0, b1, b2 };
+
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < length; ++i) {
+            hex.append(String.format("%02X", all[i]));
+        }
+        b.append(String.format("%-8s  ", hex));
+
+        String text;
+        if (opcode == null) {
+            text = String.format("DB $%02X", b0);
+        } else if (opcode.kind == Opcode.Kind.DIRECT && length == 2) {
+            text = String.format("%s $%02X", opcode, b1);
+        } else if (opcode.kind == Opcode.Kind.DIRECT && length == 3) {
+            text = String.format("%s $%04X", opcode, b2 << Byte.SIZE | b1);
+        } else {
+            text = opcode.toString();
+        }
+        b.append(String.format("%-16s", text));
+    }
+}
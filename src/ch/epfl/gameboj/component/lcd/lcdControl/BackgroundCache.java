@@ -0,0 +1,118 @@
+package ch.epfl.gameboj.component.lcd.lcdControl;
+
+import java.util.Arrays;
+
+import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.component.memory.RamController;
+
+/**
+ * The lines of the background image (256 pixels wide), with the colors of
+ * its tiles before the palette, kept until the video ram changes them. The
+ * lines are the ones of a tile map and of a source of tiles : they are all
+ * forgotten when the bits BG_AREA or TILE_SOURCE of the register LCDC change,
+ * and a line is forgotten when its line of the tile map or one of the tile
+ * lines it contains is written
+ *
+ * @author Sophie du Couédic (260007)
+ * @author Arnaud Robert (287964)
+ */
+final class BackgroundCache {
+
+    private static final int IMAGE_DIMENSION = 256;
+    private static final int TILE_DIMENSION = 8;
+    private static final int TILES_PER_MAP_LINE = IMAGE_DIMENSION
+            / TILE_DIMENSION;
+    private static final int MAP_SIZE = TILES_PER_MAP_LINE
+            * TILES_PER_MAP_LINE;
+    private static final int OCTETS_INFOS_PER_TILE = 16;
+    private static final int TILES_DATA_START = AddressMap.TILE_SOURCE[1];
+    private static final int TILES_DATA_END = AddressMap.BG_DISPLAY_DATA[0];
+    private static final int TILES_PER_SOURCE = 256;
+
+    private final RamController videoRam;
+    private final TileCache tiles;
+
+    private final byte[][] lines = new byte[IMAGE_DIMENSION][IMAGE_DIMENSION];
+    private final boolean[] valid = new boolean[IMAGE_DIMENSION];
+    private int mapAddress = -1;
+    private boolean tileSource;
+
+    /**
+     * Constructs an empty cache of the background of the given video ram
+     *
+     * @param videoRam
+     *            a RamController : the video ram
+     * @param tiles
+     *            a TileCache : the decoded tiles of this video ram
+     */
+    BackgroundCache(RamController videoRam, TileCache tiles) {
+        this.videoRam = videoRam;
+        this.tiles = tiles;
+    }
+
+    /**
+     * Returns a line of the background, computing it if it is not kept. The
+     * returned array must not be modified
+     *
+     * @param bitLine
+     *            an int : the index of the line in the background image
+     * @param mapAddress
+     *            an int : the address of the tile map of the background
+     * @param tileSource
+     *            a boolean : the bit TILE_SOURCE of the register LCDC
+     * @return an array of byte : the colors, before the palette, of the 256
+     *         pixels of the line
+     */
+    byte[] line(int bitLine, int mapAddress, boolean tileSource) {
+        if (mapAddress != this.mapAddress || tileSource != this.tileSource) {
+            this.mapAddress = mapAddress;
+            this.tileSource = tileSource;
+            Arrays.fill(valid, false);
+        }
+
+        byte[] line = lines[bitLine];
+        if (!valid[bitLine]) {
+            int mapLine = mapAddress
+                    + bitLine / TILE_DIMENSION * TILES_PER_MAP_LINE;
+            int lineInTheTile = bitLine % TILE_DIMENSION;
+            for (int i = 0; i < TILES_PER_MAP_LINE; ++i) {
+                int tileIndex = TileCache.bgTileIndex(
+                        videoRam.read(mapLine + i), tileSource);
+                for (int x = 0; x < TILE_DIMENSION; ++x) {
+                    line[i * TILE_DIMENSION + x] = (byte) tiles
+                            .color(tileIndex, lineInTheTile, x);
+                }
+            }
+            valid[bitLine] = true;
+        }
+        return line;
+    }
+
+    /**
+     * Forgets the lines that a write at the given address of the video ram
+     * may have changed. Must be called after each write in the video ram
+     *
+     * @param address
+     *            an int : the written address
+     */
+    void update(int address) {
+        if (address >= TILES_DATA_START && address < TILES_DATA_END) {
+            int tileIndex = (address - TILES_DATA_START)
+                    / OCTETS_INFOS_PER_TILE;
+            boolean used = tileSource ? tileIndex < TILES_PER_SOURCE
+                    : tileIndex >= TILES_PER_SOURCE / 2;
+            if (used) {
+                int lineInTheTile = (address - TILES_DATA_START)
+                        % OCTETS_INFOS_PER_TILE / 2;
+                for (int l = lineInTheTile; l < IMAGE_DIMENSION;
+                        l += TILE_DIMENSION) {
+                    valid[l] = false;
+                }
+            }
+        } else if (address >= mapAddress && address < mapAddress + MAP_SIZE) {
+            int first = (address - mapAddress) / TILES_PER_MAP_LINE
+                    * TILE_DIMENSION;
+            Arrays.fill(valid, first, first + TILE_DIMENSION, false);
+        }
+    }
+}
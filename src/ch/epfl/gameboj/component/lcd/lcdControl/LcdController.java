@@ -40,13 +40,18 @@ public final class LcdController implements Clocked, Component {
     private static final int MODE0_CYCLES = 51;
     private static final int MODE1_NB_LINES = 10;
 
+    // If it is set, the lines are computed by composing LcdImageLine, as the
+    // reference, instead of being rendered in the framebuffer
+    private static final boolean REFERENCE_RENDERING = Boolean
+            .getBoolean("gameboj.referenceRendering");
+
     private final Cpu cpu;
     private final LcdImageGenerator imageGenerator;
     private final RegisterFile<Reg> regs;
     private Bus bus;
 
     private long nextNonIdleCycle;
-    private int lcdOnCycle;
+    private long lineStartCycle;
 
     private LcdImage.Builder nextImageBuilder;
     private LcdImage currentImage;
@@ -106,7 +111,7 @@ public final class LcdController implements Clocked, Component {
         imageGenerator = new LcdImageGenerator(regs);
 
         nextNonIdleCycle = 0;
-        lcdOnCycle = 0;
+        lineStartCycle = 0;
 
         nextImageBuilder = new Builder(LCD_WIDTH, LCD_HEIGHT);
 
@@ -131,8 +136,8 @@ public final class LcdController implements Clocked, Component {
 
     @Override
     public void write(int address, int data) {
-        Preconditions.checkBits16(address);
-        Preconditions.checkBits8(data);
+        Preconditions.checkBits16IfDebug(address);
+        Preconditions.checkBits8IfDebug(data);
 
         if (address >= AddressMap.REGS_LCDC_START
                 && address < AddressMap.REGS_LCDC_END) {
@@ -214,7 +219,10 @@ public final class LcdController implements Clocked, Component {
 
     @Override
     public void attachTo(Bus bus) {
-        Component.super.attachTo(bus);
+        bus.attach(this, AddressMap.VIDEO_RAM_START, AddressMap.VIDEO_RAM_END);
+        bus.attach(this, AddressMap.OAM_START, AddressMap.OAM_END);
+        bus.attach(this, AddressMap.REGS_LCDC_START, AddressMap.REGS_LCDC_END);
+        imageGenerator.mapVideoRamTo(bus);
         this.bus = bus;
     }
 
@@ -223,15 +231,12 @@ public final class LcdController implements Clocked, Component {
 
         if (nextNonIdleCycle == Long.MAX_VALUE
                 && regs.testBit(Reg.LCDC, LCDCBit.LCD_STATUS)) {
-            lcdOnCycle = 0;
-            reallyCycle();
+            lineStartCycle = cycle;
+            nextNonIdleCycle = cycle;
         }
 
-        if (cycle < nextNonIdleCycle) {
-            ++lcdOnCycle;
-            return;
-        } else {
-            reallyCycle();
+        if (cycle >= nextNonIdleCycle) {
+            reallyCycle(cycle);
         }
 
         if (copyDestination != AddressMap.OAM_END) {
@@ -239,13 +244,36 @@ public final class LcdController implements Clocked, Component {
             copySource++;
             copyDestination++;
         }
+    }
 
-        ++lcdOnCycle;
+    /**
+     * Specific override for the LcdController : the controller is idle
+     * between two changes of mode, unless a copy to the OAM is in progress or
+     * the screen has just been turned on
+     */
+    @Override
+    public long nextNonIdleCycle(long cycle) {
+        if (copyDestination != AddressMap.OAM_END
+                || (nextNonIdleCycle == Long.MAX_VALUE
+                        && regs.testBit(Reg.LCDC, LCDCBit.LCD_STATUS))) {
+            return cycle;
+        }
+        return nextNonIdleCycle;
     }
 
+    /**
+     * Returns the last complete image of the screen. Unless the property
+     * gameboj.referenceRendering is set, it is only built from the framebuffer
+     * when it is asked for
+     *
+     * @return an LcdImage : the current image of the screen
+     */
     public LcdImage currentImage() {
         if (currentImage == null) {
-            return new LcdImage.Builder(LCD_WIDTH, LCD_HEIGHT).build();
+            if (REFERENCE_RENDERING) {
+                return new LcdImage.Builder(LCD_WIDTH, LCD_HEIGHT).build();
+            }
+            currentImage = imageGenerator.frameImage();
         }
         return currentImage;
     }
@@ -254,26 +282,35 @@ public final class LcdController implements Clocked, Component {
         return statsImage;
     }
 
-    private void reallyCycle() {
-        switch (lcdOnCycle) {
+    private void reallyCycle(long cycle) {
+        switch ((int) (cycle - lineStartCycle)) {
 
         case 0:
         case MODE0_CYCLES + MODE2_CYCLES + MODE3_CYCLES:
             if (regs.get(Reg.LY) == 0) {
                 setMode(Mode.M2);
-                nextImageBuilder = new Builder(LCD_WIDTH, LCD_HEIGHT);
+                if (REFERENCE_RENDERING) {
+                    nextImageBuilder = new Builder(LCD_WIDTH, LCD_HEIGHT);
+                } else {
+                    imageGenerator.startFrame();
+                }
             }
             if (getMode() != Mode.M1) {
                 if (regs.get(Reg.LY) == LCD_HEIGHT) {
                     setMode(Mode.M1);
-                    currentImage = nextImageBuilder.build();
+                    if (REFERENCE_RENDERING) {
+                        currentImage = nextImageBuilder.build();
+                    } else {
+                        imageGenerator.endFrame();
+                        currentImage = null;
+                    }
                     updateStatsImage();
                     imageGenerator.resetWinY();
                 } else
                     setMode(Mode.M2);
             }
 
-            lcdOnCycle = 0;
+            lineStartCycle = cycle;
             nextNonIdleCycle += MODE2_CYCLES;
             break;
 
@@ -282,7 +319,11 @@ public final class LcdController implements Clocked, Component {
                 setMode(Mode.M3);
 
             nextNonIdleCycle += MODE3_CYCLES;
-            imageGenerator.computeNormalLine(nextImageBuilder);
+            if (REFERENCE_RENDERING) {
+                imageGenerator.computeNormalLine(nextImageBuilder);
+            } else {
+                imageGenerator.recordNormalLine();
+            }
             updateLYForNewLine();
             break;
 
@@ -377,7 +418,7 @@ public final class LcdController implements Clocked, Component {
     }
 
     private Mode getMode(int STAT) {
-        Preconditions.checkBits8(STAT);
+        Preconditions.checkBits8IfDebug(STAT);
         int mode = (Bits.test(STAT, STATBit.MODE1) ? 1 : 0) * 2
                 + (Bits.test(STAT, STATBit.MODE0) ? 1 : 0);
 
@@ -397,6 +438,7 @@ public final class LcdController implements Clocked, Component {
 
         if (m == Mode.M1) {
             cpu.requestInterrupt(Interrupt.VBLANK);
+            cpu.endFrame();
         }
         checkSTAT(oldMode);
     }
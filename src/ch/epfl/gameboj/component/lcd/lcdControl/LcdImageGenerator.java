@@ -9,6 +9,7 @@ import java.util.Objects;
 import java.util.Set;
 
 import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.RegisterFile;
 import ch.epfl.gameboj.bits.Bit;
@@ -56,6 +57,10 @@ public final class LcdImageGenerator implements Component {
     private final RamController OAM;
     private final RamController videoRam;
     private final RegisterFile<Reg> regs;
+    private final TileCache tiles;
+    private final BackgroundCache background;
+    private final SpriteIndex sprites;
+    private final ScanlineRenderer renderer;
 
     private int winY;
     private boolean drawTile;
@@ -88,6 +93,11 @@ public final class LcdImageGenerator implements Component {
         charactersTiles = new Rom(CharactereTiles.charactereTiles());
 
         this.regs = regs;
+        tiles = new TileCache(videoRam);
+        background = new BackgroundCache(videoRam, tiles);
+        sprites = new SpriteIndex();
+        renderer = new ScanlineRenderer(regs, videoRam, tiles, background,
+                sprites);
 
         statsSprites = new HashSet<>();
         spriteInformation = NUMBER_OF_SPRITES;
@@ -101,6 +111,7 @@ public final class LcdImageGenerator implements Component {
 
     public void resetWinY() {
         winY = 0;
+        renderer.resetWinY();
     }
 
     public void resetDrawTile() {
@@ -181,12 +192,15 @@ public final class LcdImageGenerator implements Component {
                 tileSource = false;
             }
             
+            renderer.flush();
             for(int i = 0; i < TILE_DIMENSION; i++) {
                 
                 int addresse = getTileLineAddress(i, tileName, false, false, tileSource);
                 
                 videoRam.write(addresse, Bits.reverse8(tilePixels[2*i]));
                 videoRam.write(addresse + 1, Bits.reverse8(tilePixels[2*i + 1]));
+                tiles.update(addresse);
+                background.update(addresse);
             }
             
             drawTile = false;
@@ -254,6 +268,17 @@ public final class LcdImageGenerator implements Component {
 
     }
 
+    /**
+     * Maps the video ram directly on the bus for the reads, the writes still
+     * going through the lcd controller
+     * 
+     * @param bus
+     *            a Bus : the bus
+     */
+    public void mapVideoRamTo(Bus bus) {
+        videoRam.mapTo(bus, false);
+    }
+
     @Override
     public int read(int address) {
         if (address >= AddressMap.OAM_START && address < AddressMap.OAM_END)
@@ -264,8 +289,12 @@ public final class LcdImageGenerator implements Component {
 
     @Override
     public void write(int address, int data) {
+        renderer.flush();
         OAM.write(address, data);
+        sprites.update(address, data);
         videoRam.write(address, data);
+        tiles.update(address);
+        background.update(address);
     }
 
     // Compute the line for the normal lcd screen
@@ -338,6 +367,39 @@ public final class LcdImageGenerator implements Component {
         }
     }
 
+    /**
+     * Starts a new frame in the framebuffer of the renderer
+     */
+    public void startFrame() {
+        renderer.startFrame();
+    }
+
+    /**
+     * Records the registers of the line LY, that is rendered in the
+     * framebuffer later, without going through LcdImageLine : gives the same
+     * line as computeNormalLine at this time
+     */
+    public void recordNormalLine() {
+        renderer.recordLine();
+    }
+
+    /**
+     * Ends the frame of the framebuffer, rendering its last recorded lines :
+     * it becomes the one returned by frameImage
+     */
+    public void endFrame() {
+        renderer.endFrame();
+    }
+
+    /**
+     * Returns the last frame ended in the framebuffer
+     *
+     * @return an LcdImage : the last rendered frame
+     */
+    public LcdImage frameImage() {
+        return renderer.currentImage();
+    }
+
     // Compute the image for the statsImage in the displayState : BACKGROUND
     public LcdImage computeEntireBG() {
         LcdImage.Builder b = new LcdImage.Builder(IMAGE_DIMENSION,
@@ -0,0 +1,315 @@
+package ch.epfl.gameboj.component.lcd.lcdControl;
+
+import java.util.Arrays;
+
+import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.RegisterFile;
+import ch.epfl.gameboj.bits.Bits;
+import ch.epfl.gameboj.component.lcd.LcdImage;
+import ch.epfl.gameboj.component.lcd.LcdImageLine;
+import ch.epfl.gameboj.component.lcd.lcdControl.LcdController.LCDCBit;
+import ch.epfl.gameboj.component.lcd.lcdControl.LcdController.Reg;
+import ch.epfl.gameboj.component.memory.RamController;
+
+/**
+ * A renderer of the lines of the LCD screen that writes the colors (from 0 to
+ * 3) of the background, of the window and of the sprites directly in a
+ * framebuffer of bytes. All its arrays are allocated once : rendering a line
+ * allocates nothing. It gives exactly the same image as the composition of
+ * LcdImageLine done by LcdImageGenerator, which is kept as the reference.
+ * <p>
+ * When a line is drawn by the LCD, only the registers it depends on are
+ * recorded : the lines are rendered later, all together, when the frame ends
+ * or before the video ram or the OAM change
+ *
+ * @author Sophie du Couédic (260007)
+ * @author Arnaud Robert (287964)
+ */
+final class ScanlineRenderer {
+
+    private static final int LCD_WIDTH = LcdController.LCD_WIDTH;
+    private static final int LCD_HEIGHT = LcdController.LCD_HEIGHT;
+    private static final int IMAGE_DIMENSION = 256;
+    private static final int TILE_DIMENSION = 8;
+    private static final int TILES_PER_MAP_LINE = IMAGE_DIMENSION
+            / TILE_DIMENSION;
+
+    private static final int Y_AXIS_DELAY = 16;
+    private static final int X_AXIS_DELAY = 8;
+    private static final int WX_DELAY = 7;
+
+    private static final int PALETTE_BIT = 4;
+    private static final int FLIP_H_BIT = 5;
+    private static final int FLIP_V_BIT = 6;
+    private static final int BEHIND_BG_BIT = 7;
+
+    private static final byte TRANSPARENT = -1;
+
+    private final RegisterFile<Reg> regs;
+    private final RamController videoRam;
+    private final TileCache tiles;
+    private final BackgroundCache background;
+    private final SpriteIndex sprites;
+
+    private byte[] nextFrame = new byte[LCD_WIDTH * LCD_HEIGHT];
+    private byte[] currentFrame = new byte[LCD_WIDTH * LCD_HEIGHT];
+
+    private final boolean[] bgWinOpacity = new boolean[LCD_WIDTH];
+    private final byte[] fgSprites = new byte[LCD_WIDTH];
+    private final byte[] bgSprites = new byte[LCD_WIDTH];
+
+    // The registers of every recorded line, the window being described by
+    // its line (-1 if it is not drawn) and its first pixel
+    private final int[] lcdcs = new int[LCD_HEIGHT];
+    private final int[] scxs = new int[LCD_HEIGHT];
+    private final int[] scys = new int[LCD_HEIGHT];
+    private final int[] bgps = new int[LCD_HEIGHT];
+    private final int[] obp0s = new int[LCD_HEIGHT];
+    private final int[] obp1s = new int[LCD_HEIGHT];
+    private final int[] winLines = new int[LCD_HEIGHT];
+    private final int[] winXs = new int[LCD_HEIGHT];
+
+    private final int[] pendingLines = new int[LCD_HEIGHT];
+    private int pendingCount;
+
+    private int winY;
+    private int lcdc;
+
+    /**
+     * Constructs a renderer that reads the given registers and memories
+     *
+     * @param regs
+     *            a RegisterFile of Reg : the registers of the LcdController
+     * @param videoRam
+     *            a RamController : the video ram
+     * @param tiles
+     *            a TileCache : the decoded tiles of the video ram
+     * @param background
+     *            a BackgroundCache : the lines of the background
+     * @param sprites
+     *            a SpriteIndex : the sprites of the OAM
+     */
+    ScanlineRenderer(RegisterFile<Reg> regs, RamController videoRam,
+            TileCache tiles, BackgroundCache background,
+            SpriteIndex sprites) {
+        this.regs = regs;
+        this.videoRam = videoRam;
+        this.tiles = tiles;
+        this.background = background;
+        this.sprites = sprites;
+    }
+
+    /**
+     * Starts a new frame : all its lines are of color 0 until they are
+     * rendered, and the lines of the previous frame that are not rendered yet
+     * are forgotten
+     */
+    void startFrame() {
+        Arrays.fill(nextFrame, (byte) 0);
+        pendingCount = 0;
+    }
+
+    /**
+     * Ends the frame being rendered, that becomes the current one, once all
+     * its recorded lines are rendered
+     */
+    void endFrame() {
+        flush();
+        byte[] tmp = currentFrame;
+        currentFrame = nextFrame;
+        nextFrame = tmp;
+    }
+
+    /**
+     * Resets the line of the window
+     */
+    void resetWinY() {
+        winY = 0;
+    }
+
+    /**
+     * Returns the current frame as an LcdImage
+     *
+     * @return an LcdImage : the last ended frame
+     */
+    LcdImage currentImage() {
+        LcdImage.Builder b = new LcdImage.Builder(LCD_WIDTH, LCD_HEIGHT);
+        for (int y = 0; y < LCD_HEIGHT; ++y) {
+            LcdImageLine.Builder lb = new LcdImageLine.Builder(LCD_WIDTH);
+            for (int i = 0; i < LCD_WIDTH / Byte.SIZE; ++i) {
+                int start = y * LCD_WIDTH + i * Byte.SIZE;
+                int msb = 0, lsb = 0;
+                for (int p = 0; p < Byte.SIZE; ++p) {
+                    int color = currentFrame[start + p];
+                    msb |= (color >> 1) << p;
+                    lsb |= (color & 1) << p;
+                }
+                lb.setBytes(i, msb, lsb);
+            }
+            b.setLine(y, lb.build());
+        }
+        return b.build();
+    }
+
+    /**
+     * Records the registers of the line LY of the frame, if it is a visible
+     * line, to render it later
+     */
+    void recordLine() {
+        int ly = regs.get(Reg.LY);
+        if (ly >= LCD_HEIGHT) {
+            return;
+        }
+        if (pendingCount == LCD_HEIGHT) {
+            flush();
+        }
+
+        lcdcs[ly] = regs.get(Reg.LCDC);
+        scxs[ly] = regs.get(Reg.SCX);
+        scys[ly] = regs.get(Reg.SCY);
+        bgps[ly] = regs.get(Reg.BGP);
+        obp0s[ly] = regs.get(Reg.OBP0);
+        obp1s[ly] = regs.get(Reg.OBP1);
+
+        int adjustedWX = Math.max(regs.get(Reg.WX) - WX_DELAY, 0);
+        if (regs.testBit(Reg.LCDC, LCDCBit.WIN) && adjustedWX < LCD_WIDTH
+                && regs.get(Reg.WY) <= ly) {
+            winLines[ly] = winY++;
+            winXs[ly] = adjustedWX;
+        } else {
+            winLines[ly] = -1;
+        }
+
+        pendingLines[pendingCount++] = ly;
+    }
+
+    /**
+     * Renders all the recorded lines that are not rendered yet. Must be
+     * called before every write in the video ram or in the OAM
+     */
+    void flush() {
+        for (int i = 0; i < pendingCount; ++i) {
+            renderLine(pendingLines[i]);
+        }
+        pendingCount = 0;
+    }
+
+    private void renderLine(int ly) {
+        int start = ly * LCD_WIDTH;
+        lcdc = lcdcs[ly];
+
+        Arrays.fill(nextFrame, start, start + LCD_WIDTH, (byte) 0);
+        Arrays.fill(bgWinOpacity, false);
+
+        if (testLCDCBit(LCDCBit.BG)) {
+            renderBackground(start, ly);
+        }
+
+        if (winLines[ly] >= 0) {
+            renderWindow(start, winLines[ly], winXs[ly]);
+        }
+
+        if (testLCDCBit(LCDCBit.OBJ)) {
+            renderSprites(start, ly);
+        }
+    }
+
+    // The background is mapped through the palette BGP, and its pixels of
+    // color 0 (before the palette) are transparent for the sprites. The
+    // visible pixels are extracted from the line of the background image
+    private void renderBackground(int start, int ly) {
+        int bitLine = (ly + scys[ly]) % IMAGE_DIMENSION;
+        byte[] line = background.line(bitLine, mapAddress(LCDCBit.BG_AREA),
+                testLCDCBit(LCDCBit.TILE_SOURCE));
+        int scx = scxs[ly];
+        int palette = bgps[ly];
+
+        for (int x = 0; x < LCD_WIDTH; ++x) {
+            int color = line[(scx + x) % IMAGE_DIMENSION];
+            nextFrame[start + x] = (byte) mapColor(palette, color);
+            bgWinOpacity[x] = color != 0;
+        }
+    }
+
+    // The window is opaque and, as in the reference, not mapped through the
+    // palette
+    private void renderWindow(int start, int windowLine, int adjustedWX) {
+        int mapLine = mapAddress(LCDCBit.WIN_AREA)
+                + windowLine / TILE_DIMENSION * TILES_PER_MAP_LINE;
+        int lineInTheTile = windowLine % TILE_DIMENSION;
+        boolean tileSource = testLCDCBit(LCDCBit.TILE_SOURCE);
+
+        for (int x = adjustedWX; x < LCD_WIDTH; ++x) {
+            int wx = x - adjustedWX;
+            int tileName = videoRam.read(mapLine + wx / TILE_DIMENSION);
+            nextFrame[start + x] = (byte) tiles.color(
+                    TileCache.bgTileIndex(tileName, tileSource),
+                    lineInTheTile, wx % TILE_DIMENSION);
+            bgWinOpacity[x] = true;
+        }
+    }
+
+    // The sprites of the line are the first ten of the OAM that intersect it,
+    // ordered by x coordinate and then by index : the first ones are drawn
+    // above the others. The foreground sprites are drawn above the background
+    // and the window, the background sprites only where these are transparent
+    // (and then even above the foreground sprites)
+    private void renderSprites(int start, int ly) {
+        Arrays.fill(fgSprites, TRANSPARENT);
+        Arrays.fill(bgSprites, TRANSPARENT);
+
+        int height = testLCDCBit(LCDCBit.OBJ_SIZE) ? 2 * TILE_DIMENSION
+                : TILE_DIMENSION;
+        int count = sprites.count(ly, height);
+
+        for (int i = 0; i < count; ++i) {
+            int index = sprites.sprite(ly, i);
+            int special = sprites.special(index);
+
+            int lineInTheTile = ly - sprites.y(index) + Y_AXIS_DELAY;
+            if (Bits.test(special, FLIP_V_BIT)) {
+                lineInTheTile = height - 1 - lineInTheTile;
+            }
+            int tileName = sprites.tile(index);
+            int palette = Bits.test(special, PALETTE_BIT) ? obp1s[ly]
+                    : obp0s[ly];
+            byte[] line = Bits.test(special, BEHIND_BG_BIT) ? bgSprites
+                    : fgSprites;
+            int left = sprites.x(index) - X_AXIS_DELAY;
+
+            for (int p = 0; p < TILE_DIMENSION; ++p) {
+                int x = left + p;
+                if (x < 0 || x >= LCD_WIDTH || line[x] != TRANSPARENT) {
+                    continue;
+                }
+                int color = tiles.color(tileName, lineInTheTile,
+                        Bits.test(special, FLIP_H_BIT) ? TILE_DIMENSION - 1 - p
+                                : p);
+                if (color != 0) {
+                    line[x] = (byte) mapColor(palette, color);
+                }
+            }
+        }
+
+        for (int x = 0; x < LCD_WIDTH; ++x) {
+            if (!bgWinOpacity[x] && bgSprites[x] != TRANSPARENT) {
+                nextFrame[start + x] = bgSprites[x];
+            } else if (fgSprites[x] != TRANSPARENT) {
+                nextFrame[start + x] = fgSprites[x];
+            }
+        }
+    }
+
+    private int mapAddress(LCDCBit area) {
+        return AddressMap.BG_DISPLAY_DATA[testLCDCBit(area) ? 1 : 0];
+    }
+
+    private static int mapColor(int palette, int color) {
+        return Bits.extract(palette, color * 2, 2);
+    }
+
+    // Tests a bit of the register LCDC of the line being rendered
+    private boolean testLCDCBit(LCDCBit bit) {
+        return Bits.test(lcdc, bit);
+    }
+}
@@ -0,0 +1,183 @@
+package ch.epfl.gameboj.component.lcd.lcdControl;
+
+import java.util.Arrays;
+
+import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.bits.Bits;
+
+/**
+ * The attributes of the 40 sprites of the OAM, decoded in arrays, and for
+ * every line of the screen the sprites that are drawn on it : the first ten
+ * sprites of the OAM that intersect the line, ordered by x coordinate and
+ * then by index. The sprites of a line are kept until the coordinates of a
+ * sprite that was or is on this line are written, or until the height of the
+ * sprites changes
+ *
+ * @author Sophie du Couédic (260007)
+ * @author Arnaud Robert (287964)
+ */
+final class SpriteIndex {
+
+    private static final int LCD_HEIGHT = LcdController.LCD_HEIGHT;
+    private static final int NUMBER_OF_SPRITES = 40;
+    private static final int NUMBER_OF_OCTETS_PER_SPRITE = AddressMap.OAM_RAM_SIZE
+            / NUMBER_OF_SPRITES;
+    private static final int MAX_NUMBER_OF_SPRITES_PER_LINE = 10;
+    private static final int MAX_SPRITE_HEIGHT = 16;
+    private static final int Y_AXIS_DELAY = 16;
+
+    private final int[] ys = new int[NUMBER_OF_SPRITES];
+    private final int[] xs = new int[NUMBER_OF_SPRITES];
+    private final int[] tiles = new int[NUMBER_OF_SPRITES];
+    private final int[] specials = new int[NUMBER_OF_SPRITES];
+
+    private final int[][] lineSprites = new int[LCD_HEIGHT][
+            MAX_NUMBER_OF_SPRITES_PER_LINE];
+    private final int[] lineCounts = new int[LCD_HEIGHT];
+    private final boolean[] valid = new boolean[LCD_HEIGHT];
+    private int height;
+
+    /**
+     * Updates the attribute of the sprite at the given address of the OAM, if
+     * it is in the OAM. Must be called after each write in the OAM
+     *
+     * @param address
+     *            an int : the written address
+     * @param data
+     *            an int : the written value
+     */
+    void update(int address, int data) {
+        if (address < AddressMap.OAM_START || address >= AddressMap.OAM_END) {
+            return;
+        }
+        int index = (address - AddressMap.OAM_START)
+                / NUMBER_OF_OCTETS_PER_SPRITE;
+
+        switch ((address - AddressMap.OAM_START)
+                % NUMBER_OF_OCTETS_PER_SPRITE) {
+        case 0:
+            invalidate(ys[index]);
+            ys[index] = data;
+            invalidate(data);
+            break;
+        case 1:
+            xs[index] = data;
+            invalidate(ys[index]);
+            break;
+        case 2:
+            tiles[index] = data;
+            break;
+        default:
+            specials[index] = data;
+            break;
+        }
+    }
+
+    /**
+     * Returns the number of sprites drawn on the given line, finding them if
+     * they are not kept
+     *
+     * @param line
+     *            an int : the line of the screen
+     * @param height
+     *            an int : the height of the sprites, 8 or 16
+     * @return an int : the number of sprites on the line, at most 10
+     */
+    int count(int line, int height) {
+        if (height != this.height) {
+            this.height = height;
+            Arrays.fill(valid, false);
+        }
+        if (!valid[line]) {
+            findSprites(line);
+        }
+        return lineCounts[line];
+    }
+
+    /**
+     * Returns one of the sprites drawn on a line, whose number is known by
+     * count
+     *
+     * @param line
+     *            an int : the line of the screen
+     * @param i
+     *            an int : the rank of the sprite on the line, 0 being the one
+     *            drawn above the others
+     * @return an int : the index of the sprite in the OAM
+     */
+    int sprite(int line, int i) {
+        return lineSprites[line][i];
+    }
+
+    /**
+     * Returns the y coordinate of a sprite, as written in the OAM
+     *
+     * @param index
+     *            an int : the index of the sprite
+     * @return an int : its y coordinate
+     */
+    int y(int index) {
+        return ys[index];
+    }
+
+    /**
+     * Returns the x coordinate of a sprite, as written in the OAM
+     *
+     * @param index
+     *            an int : the index of the sprite
+     * @return an int : its x coordinate
+     */
+    int x(int index) {
+        return xs[index];
+    }
+
+    /**
+     * Returns the tile of a sprite
+     *
+     * @param index
+     *            an int : the index of the sprite
+     * @return an int : the name of its tile
+     */
+    int tile(int index) {
+        return tiles[index];
+    }
+
+    /**
+     * Returns the special attributes of a sprite (palette, flips, depth)
+     *
+     * @param index
+     *            an int : the index of the sprite
+     * @return an int : its special attributes
+     */
+    int special(int index) {
+        return specials[index];
+    }
+
+    private void findSprites(int line) {
+        int[] sprites = lineSprites[line];
+        int count = 0;
+        for (int index = 0; index < NUMBER_OF_SPRITES
+                && count < MAX_NUMBER_OF_SPRITES_PER_LINE; ++index) {
+            int y = ys[index] - Y_AXIS_DELAY;
+            if (line >= y && line < y + height) {
+                sprites[count++] = Bits.make16(xs[index], index);
+            }
+        }
+        Arrays.sort(sprites, 0, count);
+        for (int i = 0; i < count; ++i) {
+            sprites[i] = Bits.clip(Byte.SIZE, sprites[i]);
+        }
+        lineCounts[line] = count;
+        valid[line] = true;
+    }
+
+    // Forgets the lines that a sprite at the given y coordinate may intersect,
+    // whatever the height of the sprites
+    private void invalidate(int y) {
+        int first = Math.max(y - Y_AXIS_DELAY, 0);
+        int end = Math.min(y - Y_AXIS_DELAY + MAX_SPRITE_HEIGHT, LCD_HEIGHT);
+        if (first < end) {
+            Arrays.fill(valid, first, end, false);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ch.epfl.gameboj.component.lcd.lcdControl;
+
+import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.bits.Bits;
+import ch.epfl.gameboj.component.memory.RamController;
+
+/**
+ * The 384 tiles of the video ram, decoded : the color (from 0 to 3) of each
+ * of their pixels is kept in a byte, so that it is read without any bit
+ * manipulation. The line of a tile is decoded again every time one of its
+ * two bytes is written
+ *
+ * @author Sophie du Couédic (260007)
+ * @author Arnaud Robert (287964)
+ */
+final class TileCache {
+
+    private static final int TILE_DIMENSION = 8;
+    private static final int OCTETS_INFOS_PER_TILE = 16;
+    private static final int TILES_DATA_START = AddressMap.TILE_SOURCE[1];
+    private static final int TILES_DATA_END = AddressMap.BG_DISPLAY_DATA[0];
+    private static final int NUMBER_OF_TILES = (TILES_DATA_END
+            - TILES_DATA_START) / OCTETS_INFOS_PER_TILE;
+    private static final int TILES_PER_SOURCE = 256;
+
+    private final RamController videoRam;
+    private final byte[] pixels = new byte[NUMBER_OF_TILES * TILE_DIMENSION
+            * TILE_DIMENSION];
+
+    /**
+     * Constructs the cache of the tiles of the given video ram
+     *
+     * @param videoRam
+     *            a RamController : the video ram
+     */
+    TileCache(RamController videoRam) {
+        this.videoRam = videoRam;
+        for (int address = TILES_DATA_START; address < TILES_DATA_END;
+                address += 2) {
+            update(address);
+        }
+    }
+
+    /**
+     * Decodes again the line of tile that contains the given address, if it
+     * is in the data of the tiles. Must be called after each write in the
+     * video ram
+     *
+     * @param address
+     *            an int : the written address
+     */
+    void update(int address) {
+        if (address < TILES_DATA_START || address >= TILES_DATA_END) {
+            return;
+        }
+        int line = (address - TILES_DATA_START) / 2;
+        int lsb = videoRam.read(TILES_DATA_START + line * 2);
+        int msb = videoRam.read(TILES_DATA_START + line * 2 + 1);
+
+        for (int x = 0; x < TILE_DIMENSION; ++x) {
+            int bit = TILE_DIMENSION - 1 - x;
+            pixels[line * TILE_DIMENSION + x] = (byte) ((Bits.test(msb, bit)
+                    ? 2 : 0) | (Bits.test(lsb, bit) ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the index, in the cache, of the tile of the background or of the
+     * window that has the given name
+     *
+     * @param tileName
+     *            an int : the name of the tile, read in a tile map
+     * @param tileSource
+     *            a boolean : the bit TILE_SOURCE of the register LCDC, true
+     *            if the tiles are addressed from 0x8000 and false if the
+     *            tiles 0 to 127 are at 0x9000
+     * @return an int : the index of the tile
+     */
+    static int bgTileIndex(int tileName, boolean tileSource) {
+        return tileSource || tileName >= TILES_PER_SOURCE / 2 ? tileName
+                : tileName + TILES_PER_SOURCE;
+    }
+
+    /**
+     * Returns the color of a pixel of a tile. The lines 8 to 15 of a tile are
+     * the ones of the following tile, as needed by the big sprites
+     *
+     * @param tileIndex
+     *            an int : the index of the tile in the cache
+     * @param lineInTheTile
+     *            an int : the line of the pixel in the tile
+     * @param x
+     *            an int : the column of the pixel in the tile, 0 being the
+     *            leftmost one
+     * @return an int : the color of the pixel, from 0 to 3
+     */
+    int color(int tileIndex, int lineInTheTile, int x) {
+        return pixels[(tileIndex * TILE_DIMENSION + lineInTheTile)
+                * TILE_DIMENSION + x];
+    }
+}
@@ -3,6 +3,7 @@ package ch.epfl.gameboj.component.memory;
 import java.util.Objects;
 
 import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.cartridge.Cartridge;
@@ -15,12 +16,18 @@ import ch.epfl.gameboj.component.cartridge.Cartridge;
  */
 public final class BootRomController implements Component {
 
+    private static final int ROM_BANK_SIZE = 0x4000;
+
     private final Cartridge cart;
 
     private boolean bootRomDisabled = false;
 
     private final Rom bootRom = new Rom(BootRom.DATA);
 
+    private Bus bus;
+    private final int[] mappedBanks = { -1, -1 };
+    private boolean bootRomMapped;
+
     /**
      * Constructs and returns a new BootRomController bounded to the given
      * cartridge
@@ -48,13 +55,13 @@ public final class BootRomController implements Component {
      * @return integer (byte) : the value stored at the given address in the
      *         memory
      * @throws IllegalArgumentException
-     *             if the address is not a 16-bits value
+     *             in debug mode, if the address is not a 16-bits value
      * 
      * @see ch.epfl.gameboj.component.Component#read(int)
      */
     @Override
     public int read(int address) {
-        Preconditions.checkBits16(address);
+        Preconditions.checkBits16IfDebug(address);
         if (AddressMap.BOOT_ROM_START <= address
                 && address < AddressMap.BOOT_ROM_END) {
             return bootRomDisabled ? cart.read(address) : bootRom.read(address);
@@ -62,6 +69,29 @@ public final class BootRomController implements Component {
         return cart.read(address);
     }
 
+    /**
+     * Returns the index, in the read-only memory of the cartridge, of the byte
+     * that is currently mapped at the given address, or -1 if this byte does
+     * not come from the read-only memory of the cartridge (because the address
+     * is not one of this memory, or because the boot rom is still mapped at
+     * this address)
+     * 
+     * @param address
+     *            an int : the address
+     * @return an int : the index of the byte in the read-only memory of the
+     *         cartridge, or -1
+     * @throws IllegalArgumentException
+     *             in debug mode, if the address is not a 16-bits value
+     */
+    public int romIndex(int address) {
+        Preconditions.checkBits16IfDebug(address);
+        if (!bootRomDisabled && AddressMap.BOOT_ROM_START <= address
+                && address < AddressMap.BOOT_ROM_END) {
+            return -1;
+        }
+        return cart.romIndex(address);
+    }
+
     /**
      * Implements the method write of Component. The given value is stored in
      * the cartridge at the given address. The only exception is for the address
@@ -75,21 +105,66 @@ public final class BootRomController implements Component {
      *            integer : the value
      * 
      * @throws IllegalArgumentException
-     *             if the address is not a 16-bits value or if data is not a
-     *             8-bits value
+     *             in debug mode, if the address is not a 16-bits value or if
+     *             data is not a 8-bits value
      * 
      * @see ch.epfl.gameboj.component.Component#write(int,int)
      */
     @Override
     public void write(int address, int data) {
-        Preconditions.checkBits16(address);
-        Preconditions.checkBits8(data);
+        Preconditions.checkBits16IfDebug(address);
+        Preconditions.checkBits8IfDebug(data);
 
         if (address == AddressMap.REG_BOOT_ROM_DISABLE) {
             bootRomDisabled = true;
+            mapRoms();
         } else {
             cart.write(address, data);
+            if (address < AddressMap.VIDEO_RAM_START) {
+                mapRoms();
+            }
         }
+    }
+
+    /**
+     * Attaches the controller to the bus, at the addresses of the cartridge
+     * (its rom and its external ram) and at the address of the register that
+     * disables the boot rom. The banks of the roms that are currently selected
+     * are also mapped directly on the bus, and mapped again every time a write
+     * selects other banks
+     * 
+     * @see ch.epfl.gameboj.component.Component#attachTo(ch.epfl.gameboj.Bus)
+     */
+    @Override
+    public void attachTo(Bus bus) {
+        bus.attach(this, 0, AddressMap.VIDEO_RAM_START);
+        bus.attach(this, AddressMap.VIDEO_RAM_END, AddressMap.WORK_RAM_START);
+        bus.attach(this, AddressMap.REG_BOOT_ROM_DISABLE,
+                AddressMap.REG_BOOT_ROM_DISABLE + 1);
+        this.bus = bus;
+        mapRoms();
+    }
 
+    // Maps on the bus the two banks of the cartridge that are selected, and
+    // the boot rom over the first one while it is enabled, if they have
+    // changed since the last time
+    private void mapRoms() {
+        if (bus == null) {
+            return;
+        }
+        boolean bootRomRemoved = bootRomMapped && bootRomDisabled;
+        for (int i = 0; i < mappedBanks.length; ++i) {
+            int start = i * ROM_BANK_SIZE;
+            int index = cart.romIndex(start);
+            if (index != mappedBanks[i] || (i == 0 && bootRomRemoved)) {
+                cart.rom().mapTo(bus, index, start, start + ROM_BANK_SIZE);
+                mappedBanks[i] = index;
+            }
+        }
+        if (!bootRomDisabled) {
+            bootRom.mapTo(bus, 0, AddressMap.BOOT_ROM_START,
+                    AddressMap.BOOT_ROM_END);
+        }
+        bootRomMapped = !bootRomDisabled;
     }
-}
\ No newline at end of file
+}
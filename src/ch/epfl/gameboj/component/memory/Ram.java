@@ -1,7 +1,6 @@
 package ch.epfl.gameboj.component.memory;
 
-import java.util.Objects;
-
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 
 /**
@@ -47,7 +46,6 @@ public final class Ram {
      *             if the index is negative or greater than the memory's length
      */
     public int read(int index) {
-        Objects.checkIndex(index, size());
         return Byte.toUnsignedInt(memory[index]);
     }
 
@@ -62,11 +60,32 @@ public final class Ram {
      * @throws IndexOutOfBoundsException
      *             if the index is negative or greater than the memory's length
      * @throws IllegalArgumentException
-     *             if the value is not an 8-bits value
+     *             in debug mode, if the value is not an 8-bits value
      */
     public void write(int index, int value) {
-        Objects.checkIndex(index, size());
-        Preconditions.checkBits8(value);
+        Preconditions.checkBits8IfDebug(value);
         memory[index] = (byte) value;
     }
+
+    /**
+     * Maps the RAM directly on the bus, its first byte being at the given
+     * start address
+     * 
+     * @param bus
+     *            a Bus : the bus
+     * @param startAddress
+     *            an int : the address of the first byte of the RAM
+     * @param endAddress
+     *            an int : the address following the mapped range
+     * @param writable
+     *            a boolean : true if the bus can write directly in the RAM
+     * @throws IllegalArgumentException
+     *             if the range is not included in the address space or is
+     *             larger than the RAM
+     * @see ch.epfl.gameboj.Bus#map(byte[], int, int, boolean)
+     */
+    public void mapTo(Bus bus, int startAddress, int endAddress,
+            boolean writable) {
+        bus.map(memory, startAddress, endAddress, writable);
+    }
 }
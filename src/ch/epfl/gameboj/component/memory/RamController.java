@@ -2,6 +2,7 @@ package ch.epfl.gameboj.component.memory;
 
 import java.util.Objects;
 
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.component.Component;
 
@@ -70,10 +71,11 @@ public final class RamController implements Component {
      * @param address
      *            an int
      * @return an int : the data we are looking for or NO_DATA
-     * @throws IllegalArgumentException if address is not a 16-bits value
+     * @throws IllegalArgumentException
+     *             in debug mode, if address is not a 16-bits value
      */
     public int read(int address) {
-        Preconditions.checkBits16(address);
+        Preconditions.checkBits16IfDebug(address);
         if (address < startAddress || address >= endAddress) {
             return NO_DATA;
         }
@@ -90,14 +92,40 @@ public final class RamController implements Component {
      * @param data
      *            an int : the data we want to store
      * @throws IllegalArgumentException
-     *             if address is not a valid 16 bits value or if data is not a
-     *             valid 8 bits value
+     *             in debug mode, if address is not a valid 16 bits value or if
+     *             data is not a valid 8 bits value
      */
     public void write(int address, int data) {
-        Preconditions.checkBits16(address);
-        Preconditions.checkBits8(data);
+        Preconditions.checkBits16IfDebug(address);
+        Preconditions.checkBits8IfDebug(data);
         if (address >= startAddress && address < endAddress) {
             ram.write(address - startAddress, data);
         }
     }
+
+    /**
+     * Attaches the controller to the bus, between its start address and its
+     * end address only, and maps its ram directly on the bus
+     * 
+     * @see ch.epfl.gameboj.component.Component#attachTo(ch.epfl.gameboj.Bus)
+     */
+    @Override
+    public void attachTo(Bus bus) {
+        bus.attach(this, startAddress, endAddress);
+        mapTo(bus, true);
+    }
+
+    /**
+     * Maps the ram directly on the bus between the start address and the end
+     * address of the controller
+     * 
+     * @param bus
+     *            a Bus : the bus
+     * @param writable
+     *            a boolean : true if the bus can write directly in the ram,
+     *            false if the writes must still go through a component
+     */
+    public void mapTo(Bus bus, boolean writable) {
+        ram.mapTo(bus, startAddress, endAddress, writable);
+    }
 }
@@ -1,7 +1,8 @@
 package ch.epfl.gameboj.component.memory;
 
 import java.util.Arrays;
-import java.util.Objects;
+
+import ch.epfl.gameboj.Bus;
 
 /**
  * A non-volatile, read-only memory
@@ -43,7 +44,27 @@ public final class Rom {
      *             if the index is negative or higher than the memory's length
      */
     public int read(int index) {
-        Objects.checkIndex(index, memory.length);
         return Byte.toUnsignedInt(memory[index]);
     }
+
+    /**
+     * maps directly the bytes of the memory from the given index on the given
+     * bus, between the given addresses, without allowing the writes (see
+     * Bus.map)
+     * 
+     * @param bus
+     *            a Bus : the bus
+     * @param index
+     *            an int : the index of the byte mapped at startAddress
+     * @param startAddress
+     *            an int : the first address of the range
+     * @param endAddress
+     *            an int : the address following the range
+     * @throws IllegalArgumentException
+     *             if the range is not included in the address space or if the
+     *             memory does not have enough bytes from the index
+     */
+    public void mapTo(Bus bus, int index, int startAddress, int endAddress) {
+        bus.map(memory, index, startAddress, endAddress, false);
+    }
 }